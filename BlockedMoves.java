@@ -0,0 +1,102 @@
+package loa;
+
+import java.util.Arrays;
+
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** The number of blocked moves of each side: pairs of a piece and a
+ *  direction in which the piece's move lands on the board but is
+ *  blocked, by an opposing piece in the way or a friendly piece on the
+ *  destination.  Whether a move is blocked depends only on the contents
+ *  of the line it lies on, so the count is kept per line, and a move
+ *  or retraction recounts only the seven lines through its two squares.
+ */
+final class BlockedMoves implements EvalTerm {
+
+    /** Return the number of blocked moves of SIDE (BP or WP). */
+    int count(Piece side) {
+        return _total[side.ordinal()];
+    }
+
+    @Override
+    public void reset(Board board) {
+        _total[0] = _total[1] = 0;
+        for (int[] counts : _lineBlocked) {
+            Arrays.fill(counts, 0);
+        }
+        for (Square sq : ALL_SQUARES) {
+            for (int dir = 0; dir < 4; dir += 1) {
+                if (sq.moveDest(dir + 4, 1) == null) {
+                    recount(board, sq, dir);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void moved(Board board, Square from, Square to,
+                      boolean capture) {
+        recount(board, from, to);
+    }
+
+    @Override
+    public void retracted(Board board, Square from, Square to,
+                          boolean capture) {
+        recount(board, from, to);
+    }
+
+    /** Recount the blocked moves on all lines of BOARD through FROM or
+     *  TO, which lie on a common line. */
+    private void recount(Board board, Square from, Square to) {
+        int axis = from.direction(to) & 3;
+        for (int dir = 0; dir < 4; dir += 1) {
+            recount(board, from, dir);
+            if (dir != axis) {
+                recount(board, to, dir);
+            }
+        }
+    }
+
+    /** Recount the blocked moves of both sides on the line of BOARD
+     *  through SQ in direction DIR (0 <= DIR < 4). */
+    private void recount(Board board, Square sq, int dir) {
+        int line = sq.line(dir), steps = board.countAlone(sq, dir);
+        long mask = sq.lineMask(dir),
+            black = board.pieces(BP), white = board.pieces(WP);
+        update(BP.ordinal(), line, count(black, white, mask, dir, steps));
+        update(WP.ordinal(), line, count(white, black, mask, dir, steps));
+    }
+
+    /** Return the number of blocked moves of the pieces OWN, against the
+     *  opposing pieces OPP, on the line whose squares are MASK, which
+     *  runs in direction DIR (0 <= DIR < 4) and holds STEPS pieces. */
+    private static int count(long own, long opp, long mask, int dir,
+                             int steps) {
+        int count = 0;
+        for (long bits = own & mask; bits != 0; bits &= bits - 1) {
+            Square sq = ALL_SQUARES[Long.numberOfTrailingZeros(bits)];
+            for (int d = dir; d < 8; d += 4) {
+                Square dest = sq.moveDest(d, steps);
+                if (dest != null && ((own & dest.bit()) != 0
+                                     || (opp & sq.between(dest)) != 0)) {
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Set the number of blocked moves of the side with ordinal K on
+     *  LINE to COUNT. */
+    private void update(int k, int line, int count) {
+        _total[k] += count - _lineBlocked[k][line];
+        _lineBlocked[k][line] = count;
+    }
+
+    /** Blocked moves of each side, indexed by color ordinal. */
+    private final int[] _total = new int[2];
+    /** Blocked moves of each side on each line, indexed by color
+     *  ordinal and Square.line. */
+    private final int[][] _lineBlocked = new int[2][NUM_LINES];
+}
@@ -5,13 +5,10 @@
 package loa;
 
 import java.util.ArrayList;
-import java.util.Stack;
 import java.util.List;
 import java.util.Formatter;
-import java.util.Set;
-import java.util.HashSet;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Random;
 
 import java.util.regex.Pattern;
 
@@ -26,6 +23,33 @@ class Board {
     /** Default number of moves for each side that results in a draw. */
     static final int DEFAULT_MOVE_LIMIT = 60;
 
+    /** Position of the saved winner state in an undo record. */
+    private static final int WINNER_SHIFT = Move.CODE_BITS;
+
+    /** An upper bound on the number of legal moves in any position. */
+    static final int MAX_MOVES = 8 * NUM_SQUARES;
+
+    /** Bitboards of the leftmost and rightmost columns. */
+    private static final long
+        FILE_A = 0x0101010101010101L,
+        FILE_H = FILE_A << (BOARD_SIZE - 1);
+
+    /** Zobrist keys for a piece of each color (indexed by ordinal) on each
+     *  square (indexed by Square index). */
+    private static final long[][] ZOBRIST = new long[2][NUM_SQUARES];
+    /** Zobrist key included iff white is to move. */
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        Random keys = new Random(0x4c4f41L);
+        for (long[] color : ZOBRIST) {
+            for (int i = 0; i < color.length; i += 1) {
+                color[i] = keys.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = keys.nextLong();
+    }
+
     /** Pattern describing a valid square designator (cr). */
     static final Pattern ROW_COL = Pattern.compile("^[a-h][1-8]$");
 
@@ -56,17 +80,20 @@ class Board {
 
     /** Set my state to CONTENTS with SIDE to move. */
     void initialize(Piece[][] contents, Piece side) {
+        _black = _white = 0;
+        _key = 0;
+        Arrays.fill(_lineCount, 0);
         for (int r = 0; r < BOARD_SIZE; r++) {
             for (int c = 0; c < BOARD_SIZE; c++) {
-                Piece p = contents[r][c];
-                Square s = Square.sq(c, r);
-                for (int i = 0; i < _board.length; i++) {
-                    _board[s.index()] = p;
-                }
+                put(sq(c, r), contents[r][c]);
             }
         }
+        _moves.clear();
+        _historySize = 0;
+        resetTerms();
         _winnerKnown = false;
-        _turn = side;
+        _turn = BP;
+        setTurn(side);
         _moveLimit = DEFAULT_MOVE_LIMIT;
     }
 
@@ -82,9 +109,19 @@ class Board {
         if (board == this) {
             return;
         }
-        for (int i = 0; i < _board.length; i++) {
-            _board[i] = board._board[i];
+        _black = board._black;
+        _white = board._white;
+        _key = board._key;
+        System.arraycopy(board._lineCount, 0, _lineCount, 0, NUM_LINES);
+        _moves.clear();
+        _moves.addAll(board._moves);
+        if (_history.length < board._historySize) {
+            _history = new int[board._history.length];
         }
+        System.arraycopy(board._history, 0, _history, 0, board._historySize);
+        _historySize = board._historySize;
+        _winner = board._winner;
+        resetTerms();
         _winnerKnown = board._winnerKnown;
         _turn = board._turn;
         _moveLimit = board._moveLimit;
@@ -92,16 +129,78 @@ class Board {
 
     /** Return the contents of the square at SQ. */
     Piece get(Square sq) {
-        return _board[sq.index()];
+        long bit = sq.bit();
+        if ((_black & bit) != 0) {
+            return BP;
+        } else if ((_white & bit) != 0) {
+            return WP;
+        } else {
+            return EMP;
+        }
+    }
+
+    /** Return the bitboard of the squares occupied by SIDE (BP or WP). */
+    long pieces(Piece side) {
+        return side == BP ? _black : _white;
+    }
+
+    /** Return the bitboard of all occupied squares. */
+    long occupied() {
+        return _black | _white;
+    }
+
+    /** Make SIDE the side to move, updating my key. */
+    private void setTurn(Piece side) {
+        if (side != _turn) {
+            _key ^= WHITE_TO_MOVE;
+        }
+        _turn = side;
+    }
+
+    /** Return a 64-bit Zobrist key for the current position and side to
+     *  move.  Equal positions have equal keys; distinct positions have
+     *  distinct keys with very high probability.  The key is maintained
+     *  incrementally, so this is constant-time. */
+    long key() {
+        return _key;
+    }
+
+    /** Set the square at SQ to V (BP, WP, or EMP) in the bitboards,
+     *  adjusting the counts of the four lines through SQ if its
+     *  occupancy changes. */
+    private void put(Square sq, Piece v) {
+        long bit = sq.bit();
+        int delta = (v == EMP ? 0 : 1) - ((occupied() & bit) != 0 ? 1 : 0);
+        if ((_black & bit) != 0) {
+            _key ^= ZOBRIST[BP.ordinal()][sq.index()];
+        } else if ((_white & bit) != 0) {
+            _key ^= ZOBRIST[WP.ordinal()][sq.index()];
+        }
+        _black &= ~bit;
+        _white &= ~bit;
+        if (v == BP) {
+            _black |= bit;
+            _key ^= ZOBRIST[BP.ordinal()][sq.index()];
+        } else if (v == WP) {
+            _white |= bit;
+            _key ^= ZOBRIST[WP.ordinal()][sq.index()];
+        }
+        if (delta != 0) {
+            for (int dir = 0; dir < 4; dir += 1) {
+                _lineCount[sq.line(dir)] += delta;
+            }
+        }
     }
 
     /** Set the square at SQ to V and set the side that is to move next
      *  to NEXT, if NEXT is not null. */
     void set(Square sq, Piece v, Piece next) {
         if (next != null) {
-            _turn = next;
+            setTurn(next);
         }
-        _board[sq.index()] = v;
+        put(sq, v);
+        resetTerms();
+        _winnerKnown = false;
     }
 
     /** Set the square at SQ to V, without modifying the side that
@@ -119,77 +218,97 @@ class Board {
         _moveLimit = 2 * limit;
     }
 
-    /** Copy a board.
-     * @param b copy from this board
-     * @return a new board
-     */
-    Piece[] copyBoard(Piece[] b) {
-        Piece[] newBoard = new Piece[b.length];
-        for (int r = 0; r < BOARD_SIZE; r++) {
-            for (int c = 0; c < BOARD_SIZE; c++) {
-                Square s = Square.sq(c, r);
-                for (int i = 0; i < _board.length; i++) {
-                    newBoard[s.index()] = b[s.index()];
-                }
-            }
-        }
-        return newBoard;
-    }
-
     /** Assuming isLegal(MOVE), make MOVE. This function assumes that
      *  MOVE.isCapture() will return false.  If it saves the move for
      *  later retraction, makeMove itself uses MOVE.captureMove() to produce
      *  the capturing move. */
     void makeMove(Move move) {
         assert isLegal(move);
-        try {
-            _subsetsInitialized = false;
-            _snapShot.push(copyBoard(_board));
-            frSq = move.getFrom();
-            frP = _board[frSq.index()];
-            toSq = move.getTo();
-            toP = _board[toSq.index()];
-            capOrNot = (toP != EMP) && (toP == frP.opposite());
-            if (capOrNot) {
-                move = move.captureMove();
-            }
-            _mymoves.push(move);
-            _moves.add(move);
-            _board[toSq.index()] = frP;
-            _board[frSq.index()] = EMP;
-            _turn = frP.opposite();
-        } catch (AssertionError er) {
-            Utils.error("Illegal Move");
+        Square from = move.getFrom(), to = move.getTo();
+        boolean capture = get(to) != EMP;
+        _moves.add(capture ? move.captureMove() : move);
+        makeMove(from, to, capture);
+    }
+
+    /** Make the move FROM-TO, which captures iff CAPTURE, pushing an undo
+     *  record for it.  Does not update _moves. */
+    private void makeMove(Square from, Square to, boolean capture) {
+        if (_historySize == _history.length) {
+            _history = Arrays.copyOf(_history, 2 * _history.length);
         }
+        _history[_historySize] = Move.code(from.index(), to.index(), capture)
+            | winnerState() << WINNER_SHIFT;
+        _historySize += 1;
+        Piece fp = get(from);
+        put(to, fp);
+        put(from, EMP);
+        setTurn(fp.opposite());
+        for (EvalTerm term : _terms) {
+            term.moved(this, from, to, capture);
+        }
+        _winnerKnown = false;
+    }
+
+    /** Pass the move to the other side without moving, as in a null-move
+     *  search; a second call undoes the first.  A pass is not a legal move
+     *  in the game and is not counted by movesMade().  Requires that the
+     *  game not be over. */
+    void pass() {
+        setTurn(_turn.opposite());
     }
 
     /** Undo moves. */
     void undo() {
-        try {
-            Piece[] prev = _snapShot.pop();
-            _board = prev;
-            _winnerKnown = false;
-            _moves.remove(_mymoves.pop());
-            _turn = _turn.opposite();
-            _subsetsInitialized = false;
-        } catch (AssertionError er) {
+        if (movesMade() == 0) {
             Utils.error("No moves to undo");
+            return;
         }
+        unmakeMove();
     }
 
     /** Retract (unmake) one move, returning to the state immediately before
      *  that move.  Requires that movesMade () > 0. */
     void retract() {
-        try {
-            assert movesMade() > 0;
-            _board[frSq.index()] = frP;
-            _board[toSq.index()] = toP;
-            _moves.remove(_mymoves.pop());
-            _turn = frP;
-            _subsetsInitialized = false;
-        } catch (AssertionError er) {
+        if (movesMade() == 0) {
             Utils.error("No moves to retract");
+            return;
         }
+        unmakeMove();
+    }
+
+    /** Unmake the move on top of the undo stack, restoring the cached
+     *  winner recorded with it. */
+    private void unmakeMove() {
+        _historySize -= 1;
+        _moves.remove(_moves.size() - 1);
+        int rec = _history[_historySize];
+        Square from = ALL_SQUARES[Move.fromIndex(rec)],
+            to = ALL_SQUARES[Move.toIndex(rec)];
+        Piece fp = get(to);
+        boolean capture = (rec & Move.CAPTURE_FLAG) != 0;
+        put(from, fp);
+        put(to, capture ? fp.opposite() : EMP);
+        setTurn(fp);
+        for (EvalTerm term : _terms) {
+            term.retracted(this, from, to, capture);
+        }
+        setWinnerState(rec >>> WINNER_SHIFT);
+    }
+
+    /** Return an encoding of _winnerKnown and _winner for undo records:
+     *  0 if unknown, else 1 + the ordinal of _winner (with 0 for null). */
+    private int winnerState() {
+        if (!_winnerKnown) {
+            return 0;
+        }
+        return _winner == null ? 1 : 2 + _winner.ordinal();
+    }
+
+    /** Restore _winnerKnown and _winner from STATE, as encoded by
+     *  winnerState. */
+    private void setWinnerState(int state) {
+        _winnerKnown = state != 0;
+        _winner = state < 2 ? null : Piece.values()[state - 2];
     }
 
     /** Return the Piece representing who is next to move. */
@@ -200,8 +319,8 @@ class Board {
     /** Return true iff FROM - TO is a legal move for the player currently on
      *  move. */
     boolean isLegal(Square from, Square to) {
-        Piece fp = _board[from.index()];
-        Piece tp = _board[to.index()];
+        Piece fp = get(from);
+        Piece tp = get(to);
         int dis = from.distance(to);
         int dir = from.direction(to);
         if (fp == tp
@@ -222,18 +341,7 @@ class Board {
      * @return number of squares alone the line of direction.
      * */
     int countAlone(Square sq, int dir) {
-        int count = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                Square canSq = Square.sq(i, j);
-                if (sq.sameLine(canSq, dir)) {
-                    if (_board[canSq.index()] != EMP) {
-                        count += 1;
-                    }
-                }
-            }
-        }
-        return count;
+        return _lineCount[sq.line(dir)];
     }
 
     /** Return true iff MOVE is legal for the player currently on move.
@@ -245,38 +353,62 @@ class Board {
         return isLegal(move.getFrom(), move.getTo());
     }
 
-    /** Return a sequence of all _turn's legal moves from this position. */
-    @SuppressWarnings("unchecked")
+    /** Return a sequence of all _turn's legal moves from this position,
+     *  with isCapture() false.  The result is reused by the next call. */
     List<Move> legalMoves() {
+        int n = legalMoves(_moveBuffer);
         _allLegal.clear();
-        _eachLegal = new ArrayList[BOARD_SIZE  * BOARD_SIZE];
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (_board[Square.sq(i, j).index()] == _turn) {
-                    Square sq = Square.sq(i, j);
-                    _eachLegal[sq.index()] = new ArrayList<Move>();
-                    for (int dir = 0; dir < 8; dir++) {
-                        for (int step = 1; step < BOARD_SIZE; step++) {
-                            Square canSq = sq.moveDest(dir, step);
-                            Move m = Move.mv(sq, canSq);
-                            if (canSq != null
-                                    && isLegal(m)) {
-                                _allLegal.add(m);
-                                _eachLegal[sq.index()].add(m);
-                            }
-                        }
-                    }
+        for (int i = 0; i < n; i += 1) {
+            _allLegal.add(Move.mv(_moveBuffer[i] & ~Move.CAPTURE_FLAG));
+        }
+        return _allLegal;
+    }
+
+    /** Store the codes (see Move.code) of all _turn's legal moves from
+     *  this position in MOVES, starting at index 0, and return their
+     *  number.  MOVES must have room for MAX_MOVES codes.  Since a move's
+     *  length is fixed by its line, there is at most one candidate per
+     *  direction for each piece. */
+    int legalMoves(int[] moves) {
+        long own = pieces(_turn), opp = pieces(_turn.opposite());
+        int n = 0;
+        for (long bits = own; bits != 0; bits &= bits - 1) {
+            Square from = ALL_SQUARES[Long.numberOfTrailingZeros(bits)];
+            for (int dir = 0; dir < 8; dir += 1) {
+                Square to = from.moveDest(dir, _lineCount[from.line(dir)]);
+                if (to == null || (own & to.bit()) != 0
+                    || (opp & from.between(to)) != 0) {
+                    continue;
                 }
+                moves[n] = Move.code(from.index(), to.index(),
+                                     (opp & to.bit()) != 0);
+                n += 1;
             }
         }
-        return _allLegal;
+        return n;
+    }
+
+    /** Make the move encoded as CODE (see Move.code), which must be legal
+     *  for the side to move.  Equivalent to makeMove(Move.mv(CODE)). */
+    void makeMove(int code) {
+        _moves.add(Move.mv(code));
+        makeMove(ALL_SQUARES[Move.fromIndex(code)],
+                 ALL_SQUARES[Move.toIndex(code)],
+                 (code & Move.CAPTURE_FLAG) != 0);
     }
 
     /** Map of each leagal moves.
      * @return each legal move.
      * */
+    @SuppressWarnings("unchecked")
     public ArrayList<Move>[] eachLegalMove() {
-        legalMoves();
+        _eachLegal = new ArrayList[NUM_SQUARES];
+        for (long bits = pieces(_turn); bits != 0; bits &= bits - 1) {
+            _eachLegal[Long.numberOfTrailingZeros(bits)] = new ArrayList<>();
+        }
+        for (Move m : legalMoves()) {
+            _eachLegal[m.getFrom().index()].add(m);
+        }
         return _eachLegal;
     }
 
@@ -288,21 +420,22 @@ class Board {
 
     /** Return true iff SIDE's pieces are contiguous. */
     boolean piecesContiguous(Piece side) {
-        return getRegionSizes(side).size() == 1;
+        return _regions.count(side) == 1;
     }
 
     /** Return the winning side, if any.  If the game is not over, result is
      *  null.  If the game has ended in a tie, returns EMP. */
     Piece winner() {
         if (!_winnerKnown) {
+            _winner = null;
             if (movesMade() >= _moveLimit) {
                 _winner = EMP;
                 _winnerKnown = true;
             }
-            if (getRegionSizes(_turn.opposite()).size() == 1) {
+            if (piecesContiguous(_turn.opposite())) {
                 _winner = _turn.opposite();
                 _winnerKnown = true;
-            } else if (getRegionSizes(_turn).size() == 1) {
+            } else if (piecesContiguous(_turn)) {
                 _winner = _turn;
                 _winnerKnown = true;
             }
@@ -310,6 +443,12 @@ class Board {
         return _winner;
     }
 
+    /** Return the number of moves (by both sides) after which the game
+     *  ends in a tie. */
+    int moveLimit() {
+        return _moveLimit;
+    }
+
     /** Return the total number of moves that have been made (and not
      *  retracted).  Each valid call to makeMove with a normal move increases
      *  this number by 1. */
@@ -320,12 +459,12 @@ class Board {
     @Override
     public boolean equals(Object obj) {
         Board b = (Board) obj;
-        return Arrays.deepEquals(_board, b._board) && _turn == b._turn;
+        return _black == b._black && _white == b._white && _turn == b._turn;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+        return Long.hashCode(_key);
     }
 
     @Override
@@ -346,19 +485,13 @@ class Board {
     /** Return true if a move from FROM to TO is blocked by an opposing
      *  piece or by a friendly piece on the target square. */
     private boolean blocked(Square from, Square to) {
-        Piece fp = _board[from.index()];
-        Piece tp = _board[to.index()];
-        int dir = from.direction(to);
+        Piece fp = get(from);
+        Piece tp = get(to);
         if ((fp == tp) && (fp != EMP)) {
             return true;
         }
-        for (int i = 1; i < from.distance(to); i++) {
-            Square s = from.moveDest(dir, i);
-            if (s != null && _board[s.index()] == fp.opposite()) {
-                return true;
-            }
-        }
-        return false;
+        return fp != EMP
+            && (pieces(fp.opposite()) & from.between(to)) != 0;
     }
 
     /** Return how many moves are blocked for p in current state.
@@ -366,24 +499,7 @@ class Board {
      * @return number of moves blocked.
      * */
     int countBlocked(Piece p) {
-        int count = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                Square sq = sq(i, j);
-                if (_board[sq.index()] == p) {
-                    for (int dir = 0; dir < 8; dir++) {
-                        int step = countAlone(sq, dir);
-                        Square to = sq.moveDest(dir, step);
-                        if (to != null) {
-                            if (blocked(sq, to)) {
-                                count++;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return count;
+        return _blocked.count(p);
     }
 
     /** Count number of piece p in current board.
@@ -391,18 +507,10 @@ class Board {
      * @return how many pieces are there for p.
      */
     int countPiece(Piece p) {
-        int count = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                Square sq = sq(i, j);
-                for (int k = 0; k < BOARD_SIZE; k++) {
-                    if (_board[sq.index()] == p) {
-                        count++;
-                    }
-                }
-            }
+        if (p == EMP) {
+            return NUM_SQUARES - Long.bitCount(occupied());
         }
-        return count;
+        return Long.bitCount(pieces(p));
     }
 
     /** Return the size of the as-yet unvisited cluster of squares
@@ -410,8 +518,7 @@ class Board {
      *  have already been processed or are in different clusters.  Update
      *  VISITED to reflect squares counted. */
     int numContig(Square sq, boolean[][] visited, Piece p) {
-        if (_board[sq.index()] == p.opposite()
-            || _board[sq.index()] == EMP
+        if (get(sq) != p
             || visited[sq.col()][sq.row()]) {
             return 0;
         }
@@ -424,50 +531,84 @@ class Board {
         return count;
     }
 
-    /** Get a new indicator for numContig method.
-     * @return a new indicator.
-     * */
-    private boolean[][] newInd() {
-        return new boolean[BOARD_SIZE][BOARD_SIZE];
-    }
-
-    /** Set the values of _whiteRegionSizes and _blackRegionSizes. */
-    private void computeRegions() {
-        if (_subsetsInitialized) {
-            return;
-        }
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
-        _hatedList.clear();
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                Square sq = Square.sq(i, j);
-                Piece p = _board[sq.index()];
-                if (p == EMP) {
-                    continue;
-                }
-                boolean[][] ind = newInd();
-                int regSize = numContig(sq, ind, p);
-                if (p == BP && !_hatedList.contains(sq)) {
-                    _blackRegionSizes.add(regSize);
-                }
-                if (p == WP && !_hatedList.contains(sq)) {
-                    _whiteRegionSizes.add(regSize);
-                }
-                for (int c = 0; c < ind.length; c++) {
-                    for (int r = 0; r < ind.length; r++) {
-                        if (ind[c][r]) {
-                            _hatedList.add(sq(c, r));
-                        }
-                    }
-                }
+    /** Return the region of PIECES that is 8-connected to the squares in
+     *  SEED, which should be a subset of PIECES. */
+    static long contiguous(long seed, long pieces) {
+        long region = seed;
+        while (true) {
+            long next = neighborhood(region) & pieces;
+            if (next == region) {
+                return region;
             }
+            region = next;
         }
-        Collections.sort(_whiteRegionSizes, Collections.reverseOrder());
-        Collections.sort(_blackRegionSizes, Collections.reverseOrder());
-        _subsetsInitialized = true;
     }
 
+    /** Return the squares in or adjacent (in any of the 8 directions) to
+     *  a square of BITS. */
+    static long neighborhood(long bits) {
+        long row = bits | ((bits << 1) & ~FILE_A) | ((bits >>> 1) & ~FILE_H);
+        return row | (row << BOARD_SIZE) | (row >>> BOARD_SIZE);
+    }
+
+    /** Return the number of connected regions of SIDE's pieces. */
+    int numRegions(Piece side) {
+        return _regions.count(side);
+    }
+
+    /** Return the size of the largest connected region of SIDE's pieces,
+     *  or 0 if SIDE has no pieces. */
+    int largestRegion(Piece side) {
+        return _regions.largest(side);
+    }
+
+    /** Return the Euler number of SIDE's pieces: the number of their
+     *  connected regions less the number of holes they enclose. */
+    int euler(Piece side) {
+        return _euler.euler(side);
+    }
+
+    /** Return false if SIDE's pieces certainly are not contiguous, as
+     *  shown by their Euler number, and true if they may be. */
+    boolean mayBeContiguous(Piece side) {
+        return _euler.euler(side) <= 1;
+    }
+
+    /** Return false if the move encoded as CODE (see Move.code), which
+     *  must be legal for the side to move, certainly does not leave that
+     *  side's pieces contiguous, and true if it may.  This is much
+     *  cheaper than finding out for sure. */
+    boolean mayConnect(int code) {
+        return _euler.eulerAfter(this, ALL_SQUARES[Move.fromIndex(code)],
+                                 ALL_SQUARES[Move.toIndex(code)]) <= 1;
+    }
+
+    /** Return the square nearest the center of mass of SIDE's pieces,
+     *  or null if SIDE has no pieces. */
+    Square centerOfMass(Piece side) {
+        return _mass.center(side);
+    }
+
+    /** Return the spread of SIDE's pieces: their mean squared distance
+     *  from their center of mass, in hundredths of a square, beyond
+     *  that of the most compact arrangement of as many pieces. */
+    int concentration(Piece side) {
+        return _mass.concentration(side);
+    }
+
+    /** Return the centralization of SIDE's pieces: the sum over the
+     *  pieces of the number of rings of squares between each and the
+     *  edge of the board. */
+    int centralization(Piece side) {
+        return CenterOfMass.centralization(pieces(side));
+    }
+
+    /** Recompute all my evaluation terms from the current position. */
+    private void resetTerms() {
+        for (EvalTerm term : _terms) {
+            term.reset(this);
+        }
+    }
 
     /** Return adjacent allies of sq. If it's EMP, return an empty array.
      * @param  sq sqaure of interest.
@@ -476,12 +617,13 @@ class Board {
     Object[] adjAllies(Square sq) {
         Square[] adj = sq.adjacent();
         ArrayList<Square> result = new ArrayList<>();
-        if (_board[sq.index()] == EMP) {
+        Piece p = get(sq);
+        if (p == EMP) {
             return result.toArray();
         }
         for (int i = 0; i < adj.length; i++) {
             Square can = adj[i];
-            if (_board[can.index()] == _board[sq.index()]) {
+            if (get(can) == p) {
                 result.add(can);
             }
         }
@@ -492,23 +634,27 @@ class Board {
     /** Return the sizes of all the regions in the current union-find
      *  structure for side S. */
     List<Integer> getRegionSizes(Piece s) {
-        computeRegions();
-        if (s == WP) {
-            return _whiteRegionSizes;
-        } else {
-            return _blackRegionSizes;
+        int n = _regions.sizes(s, _regionSizes);
+        ArrayList<Integer> result =
+            s == WP ? _whiteRegionSizes : _blackRegionSizes;
+        result.clear();
+        for (int i = 0; i < n; i += 1) {
+            result.add(_regionSizes[i]);
         }
+        return result;
     }
 
-    /** Snapshot of board states. */
-    private Stack<Piece[]> _snapShot = new Stack<>();
-
-
-    /** Get the board.
+    /** Get the board as an array of pieces.  Square S is at
+     *  result[S.index()].  The array is a fresh copy; modifying it does
+     *  not affect me.
      * @return board
      * */
     public Piece[] getBoard() {
-        return _board;
+        Piece[] result = new Piece[NUM_SQUARES];
+        for (Square sq : ALL_SQUARES) {
+            result[sq.index()] = get(sq);
+        }
+        return result;
     }
 
     /** Get the moves.
@@ -527,53 +673,12 @@ class Board {
     }
 
 
-    /** Return true if it's a capture move. */
-    private Boolean capOrNot;
-
-    /** get toSq.
-     * @return toSq
-     */
-    public Square getToSq() {
-        return toSq;
-    }
-
-    /** To Square when making a move. */
-    private Square toSq;
-
-    /** Get to piece.
-     * @return toP
-     * */
-    public Piece getToP() {
-        return toP;
-    }
-
-    /** The piece at ToSq (could be EMP).
-     * */
-    private Piece toP;
-
-    /** Get from square.
-     * @return frSq
-     * */
-    public Square getFrSq() {
-        return frSq;
-    }
-
-    /** From Square when making a move. */
-    private Square frSq;
-
-    /** Get frp.
-     * @return frP
-     * */
-    public Piece getFrP() {
-        return frP;
-    }
-
-    /** The piece at frSq (could be EMP). */
-    private Piece frP;
-
     /** All legal moves in this board for current turn. */
     private List<Move> _allLegal = new ArrayList<>();
 
+    /** Buffer of encoded moves used by legalMoves(). */
+    private final int[] _moveBuffer = new int[MAX_MOVES];
+
 
     /** All legal moves for each square position. If there aren't
      * any legal moves from that square, the corresponding ArrayList
@@ -583,13 +688,6 @@ class Board {
     private ArrayList<Move>[] _eachLegal
             = new ArrayList[BOARD_SIZE  * BOARD_SIZE];
 
-    /** Set of squares that I don't want to compute region on.
-     *  Just a helper global variable for computing regions.
-     */
-    private Set<Square> _hatedList = new HashSet<>();
-
-
-
     /** The standard initial configuration for Lines of Action (bottom row
      *  first). */
     static final Piece[][] INITIAL_PIECES = {
@@ -603,14 +701,24 @@ class Board {
         { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP }
     };
 
-    /** Current contents of the board.  Square S is at _board[S.index()]. */
-    private Piece[] _board = new Piece[BOARD_SIZE  * BOARD_SIZE];
+    /** Current contents of the board as bitboards of the black and white
+     *  pieces.  Square S is bit S.index(). */
+    private long _black, _white;
 
     /** List of all unretracted moves on this board, in order. */
     private ArrayList<Move> _moves = new ArrayList<>();
-    /** Also a stack of all unretracted moves, but it's easier to retract
-     * multiple moves. */
-    private final Stack<Move> _mymoves = new Stack<>();
+
+    /** Undo records of all unretracted moves, in order, of which the first
+     *  _historySize are valid.  Each is the move's Move.code() with the
+     *  winnerState before the move above it. */
+    private int[] _history = new int[2 * DEFAULT_MOVE_LIMIT];
+    /** Number of valid records in _history. */
+    private int _historySize;
+    /** Number of pieces on each line of action, indexed by
+     *  Square.line. */
+    private final int[] _lineCount = new int[NUM_LINES];
+    /** Zobrist key of the current position, as returned by key(). */
+    private long _key;
     /** Current side on move. */
     private Piece _turn;
     /** Limit on number of moves before tie is declared.  */
@@ -621,10 +729,22 @@ class Board {
      *  in progress).  Use only if _winnerKnown. */
     private Piece _winner;
 
-    /** True iff subsets computation is up-to-date. */
-    private boolean _subsetsInitialized;
-
-    /** List of the sizes of continguous clusters of pieces, by color. */
+    /** Blocked moves of each side. */
+    private final BlockedMoves _blocked = new BlockedMoves();
+    /** Connected regions of each side's pieces. */
+    private final Regions _regions = new Regions();
+    /** Euler numbers of each side's pieces. */
+    private final EulerNumber _euler = new EulerNumber();
+    /** Centers of mass and spreads of each side's pieces. */
+    private final CenterOfMass _mass = new CenterOfMass();
+    /** All my evaluation terms, updated as moves are made and
+     *  retracted. */
+    private final EvalTerm[] _terms = { _blocked, _regions, _euler, _mass };
+    /** Sizes of the regions of one side, as filled by Regions.sizes. */
+    private final int[] _regionSizes = new int[NUM_SQUARES];
+
+    /** List of the sizes of continguous clusters of pieces, by color,
+     *  as returned by getRegionSizes. */
     private final ArrayList<Integer>
         _whiteRegionSizes = new ArrayList<>(),
         _blackRegionSizes = new ArrayList<>();
@@ -7,6 +7,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import static loa.Square.*;
@@ -204,6 +205,26 @@ public class BoardTest {
         assertEquals(1, myBoard.getRegionSizes(WP).size());
     }
 
+    /** Test region counts and largest regions. */
+    @Test
+    public void testNumRegions() {
+        Board myBoard = new Board(BOARD5, BP);
+        assertEquals(myBoard.getRegionSizes(WP).size(),
+                     myBoard.numRegions(WP));
+        assertEquals(myBoard.getRegionSizes(BP).get(0),
+                     (Integer) myBoard.largestRegion(BP));
+        myBoard.makeMove(Move.mv("b4-b7"));
+        assertEquals(myBoard.getRegionSizes(WP).size(),
+                     myBoard.numRegions(WP));
+        assertEquals(6, myBoard.largestRegion(WP));
+        Board empty = new Board(BOARD6, BP);
+        empty.set(sq("f1"), EMP);
+        empty.set(sq("d3"), EMP);
+        assertEquals(0, empty.numRegions(WP));
+        assertEquals(0, empty.largestRegion(WP));
+        assertFalse(empty.piecesContiguous(WP));
+    }
+
     /** Test adjacent allies. */
     @Test
     public void testAdjAllies() {
@@ -320,6 +341,38 @@ public class BoardTest {
         assertEquals(2, myBoard.countAlone(sq1, 5));
     }
 
+    /** Test that line counts agree with the board after moves,
+     *  captures, retractions and set. */
+    @Test
+    public void testLineCounts() {
+        Board myBoard = new Board(BOARD5, BP);
+        myBoard.makeMove(Move.mv("b4-b7"));
+        checkLineCounts(myBoard);
+        myBoard.retract();
+        checkLineCounts(myBoard);
+        myBoard.set(sq("h8"), WP);
+        myBoard.set(sq("b4"), EMP);
+        checkLineCounts(myBoard);
+        Board copy = new Board(myBoard);
+        checkLineCounts(copy);
+    }
+
+    /** Check that B.countAlone agrees with a direct count for all
+     *  squares and directions. */
+    private void checkLineCounts(Board b) {
+        for (Square s : ALL_SQUARES) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                int count = 0;
+                for (Square t : ALL_SQUARES) {
+                    if (s.sameLine(t, dir) && b.get(t) != EMP) {
+                        count += 1;
+                    }
+                }
+                assertEquals(count, b.countAlone(s, dir));
+            }
+        }
+    }
+
     /** Only an ad-host test for legalMoves. */
     @Test
     @SuppressWarnings("unchecked")
@@ -345,6 +398,52 @@ public class BoardTest {
     }
 
 
+    /** Test piece counts and occupancy after moves and captures. */
+    @Test
+    public void testCountPiece() {
+        Board myBoard = new Board();
+        assertEquals(12, myBoard.countPiece(BP));
+        assertEquals(12, myBoard.countPiece(WP));
+        assertEquals(40, myBoard.countPiece(EMP));
+        myBoard = new Board(BOARD5, BP);
+        int white = myBoard.countPiece(WP);
+        myBoard.makeMove(Move.mv("b4-b7"));
+        assertEquals(white - 1, myBoard.countPiece(WP));
+        assertEquals(myBoard.countPiece(BP) + myBoard.countPiece(WP),
+                     Long.bitCount(myBoard.occupied()));
+        myBoard.retract();
+        assertEquals(white, myBoard.countPiece(WP));
+    }
+
+    /** Test that the encoded move generator agrees with isLegal on every
+     *  candidate move and flags exactly the captures. */
+    @Test
+    public void testLegalMoveCodes() {
+        Piece[][][] boards = { BOARD1, BOARD4, BOARD5, Board.INITIAL_PIECES };
+        int[] codes = new int[Board.MAX_MOVES];
+        for (Piece[][] contents : boards) {
+            for (Piece side : new Piece[] { BP, WP }) {
+                Board b = new Board(contents, side);
+                int n = b.legalMoves(codes);
+                Set<Move> generated = new HashSet<>();
+                for (int i = 0; i < n; i += 1) {
+                    Move m = Move.mv(codes[i]);
+                    assertEquals(b.get(m.getTo()) != EMP, m.isCapture());
+                    generated.add(mv(m.getFrom(), m.getTo()));
+                }
+                assertEquals(n, generated.size());
+                for (Square from : ALL_SQUARES) {
+                    for (Square to : ALL_SQUARES) {
+                        Move m = mv(from, to);
+                        if (m != null) {
+                            assertEquals(b.isLegal(m), generated.contains(m));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /** Test get and initialization */
     @Test
     public void testGet() {
@@ -437,6 +536,26 @@ public class BoardTest {
         assertEquals(2, myBoard.movesMade());
     }
 
+    /** Test that several moves, including a capture, retract back to
+     *  each earlier position in turn. */
+    @Test
+    public void testRetractMany() {
+        Board myBoard = new Board(BOARD5, BP);
+        List<Board> before = new ArrayList<>();
+        before.add(new Board(myBoard));
+        myBoard.makeMove(Move.mv("b4-b7"));
+        for (int i = 0; i < 4; i += 1) {
+            before.add(new Board(myBoard));
+            myBoard.makeMove(myBoard.legalMoves().get(0));
+        }
+        assertTrue(myBoard.getMoves().get(0).isCapture());
+        for (int i = before.size() - 1; i >= 0; i -= 1) {
+            myBoard.retract();
+            assertEquals(before.get(i), myBoard);
+            assertEquals(i, myBoard.movesMade());
+        }
+    }
+
     /* Test if an error will be thrown when there's nothing to retract. */
     @Test
     public void testRetract2() {
@@ -561,6 +680,25 @@ public class BoardTest {
         assertTrue("Board 3 game over", b3.gameOver());
     }
 
+    /** Test that keys are maintained incrementally and depend on the
+     *  position and the side to move. */
+    @Test
+    public void testKey() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(BOARD1, BP);
+        assertEquals(b0.key(), b1.key());
+        assertNotEquals(b0.key(), new Board(BOARD1, WP).key());
+        b1.makeMove(mv("f3-d5"));
+        assertNotEquals(b0.key(), b1.key());
+        Board b2 = new Board(BOARD1, BP);
+        b2.set(sq("f3"), EMP);
+        b2.set(sq("d5"), BP, WP);
+        assertEquals(b2.key(), b1.key());
+        b1.retract();
+        assertEquals(b0.key(), b1.key());
+        assertEquals(b0.hashCode(), b1.hashCode());
+    }
+
     @Test
     public void testEquals1() {
         Board b1 = new Board(BOARD1, BP);
@@ -584,4 +722,101 @@ public class BoardTest {
                      0, b1.movesMade());
     }
 
+
+    /** Check that the evaluation terms of B agree with those computed
+     *  from scratch for a copy of B. */
+    private void checkTerms(Board b) {
+        Board fresh = new Board(b);
+        for (Piece side : new Piece[] { BP, WP }) {
+            assertEquals(fresh.countBlocked(side), b.countBlocked(side));
+            assertEquals(fresh.numRegions(side), b.numRegions(side));
+            assertEquals(fresh.largestRegion(side), b.largestRegion(side));
+            assertEquals(fresh.getRegionSizes(side), b.getRegionSizes(side));
+            assertEquals(fresh.euler(side), b.euler(side));
+            assertEquals(fresh.centerOfMass(side), b.centerOfMass(side));
+            assertEquals(fresh.concentration(side), b.concentration(side));
+            assertTrue(b.euler(side) <= b.numRegions(side));
+        }
+    }
+
+    /** Check that no legal move on B that connects the mover's pieces is
+     *  ruled out by B.mayConnect. */
+    private void checkMayConnect(Board b) {
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.legalMoves(moves);
+        for (int i = 0; i < n; i += 1) {
+            b.makeMove(moves[i]);
+            boolean connected = b.piecesContiguous(b.turn().opposite());
+            b.retract();
+            assertTrue(!connected || b.mayConnect(moves[i]));
+        }
+    }
+
+    /** Test Euler numbers. */
+    @Test
+    public void testEuler() {
+        Board b = new Board();
+        assertEquals(2, b.euler(BP));
+        assertEquals(2, b.euler(WP));
+        assertFalse(b.mayBeContiguous(BP));
+        Board ring = new Board(BOARD6, BP);
+        for (Square sq : ALL_SQUARES) {
+            ring.set(sq, EMP);
+        }
+        for (String s : new String[] { "c3", "d3", "e3", "c4", "e4",
+                                       "c5", "d5", "e5" }) {
+            ring.set(sq(s), WP);
+        }
+        ring.set(sq("d4"), BP);
+        ring.set(sq("g7"), BP);
+        assertEquals(0, ring.euler(WP));
+        assertEquals(2, ring.euler(BP));
+        assertFalse(ring.mayBeContiguous(BP));
+        assertTrue(ring.mayBeContiguous(WP));
+    }
+
+    /** Test centers of mass, concentration and centralization. */
+    @Test
+    public void testCenterOfMass() {
+        Board b = new Board();
+        assertEquals(sq("e5"), b.centerOfMass(BP));
+        assertEquals(sq("e5"), b.centerOfMass(WP));
+        assertEquals(0, b.centralization(BP));
+        Board block = new Board(BOARD6, BP);
+        for (Square sq : ALL_SQUARES) {
+            block.set(sq, EMP);
+        }
+        for (String s : new String[] { "c3", "d3", "e3", "c4", "d4", "e4",
+                                       "c5", "d5", "e5" }) {
+            block.set(sq(s), WP);
+        }
+        block.set(sq("a1"), BP);
+        block.set(sq("h8"), BP);
+        assertEquals(sq("d4"), block.centerOfMass(WP));
+        assertEquals(0, block.concentration(WP));
+        assertEquals(22, block.centralization(WP));
+        assertTrue(block.concentration(BP) > 0);
+        assertTrue(new Board().concentration(BP) > 0);
+    }
+
+    /** Test that the evaluation terms are kept up to date through moves
+     *  and retractions. */
+    @Test
+    public void testIncrementalTerms() {
+        Random random = new Random(5);
+        for (int game = 0; game < 20; game += 1) {
+            Board b = new Board();
+            while (!b.gameOver()) {
+                checkMayConnect(b);
+                List<Move> moves = b.legalMoves();
+                b.makeMove(moves.get(random.nextInt(moves.size())));
+                checkTerms(b);
+            }
+            while (b.movesMade() > 0) {
+                b.retract();
+                checkTerms(b);
+            }
+        }
+    }
+
 }
@@ -99,7 +99,7 @@ class BoardWidget extends Pad {
 
     /** Draw the contents of S on G. */
     private void drawPiece(Graphics2D g, Square s) {
-        Piece p = _board.get(s);
+        Piece p = (_marked & s.bit()) != 0 ? MP : _board.get(s);
         switch (p) {
         case EMP:
             return;
@@ -125,15 +125,16 @@ class BoardWidget extends Pad {
 
     /** Handle a mouse-button push on S. */
     private void mousePressed(Square s) {
-        if (_board.getBoard()[s.index()] != EMP) {
+        if (_board.get(s) != EMP) {
             _fromS = s;
         } else {
             _fromS = null;
         }
         ArrayList<Move> each = _board.eachLegalMove()[s.index()];
-        for (Move mv : each) {
-            Square toSq = mv.getTo();
-            _board.getBoard()[toSq.index()] = MP;
+        if (each != null) {
+            for (Move mv : each) {
+                _marked |= mv.getTo().bit();
+            }
         }
         repaint();
     }
@@ -143,6 +144,10 @@ class BoardWidget extends Pad {
     /** Save the starting square. */
     private Square _fromS;
 
+    /** Bitboard of the squares highlighted as legal destinations of
+     *  the piece at _fromS. */
+    private long _marked;
+
     /** Handle a mouse-button release on S. */
     private void mouseReleased(Square s) {
         repaint();
@@ -177,6 +182,7 @@ class BoardWidget extends Pad {
     /** Revise the displayed board according to BOARD. */
     synchronized void update(Board board) {
         _board.copyFrom(board);
+        _marked = 0;
         repaint();
     }
 
@@ -0,0 +1,161 @@
+package loa;
+
+import java.util.Arrays;
+
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** The number, center of mass and spread of each side's pieces, kept
+ *  as sums of their rows and columns and of their squares, to which a
+ *  move adds and subtracts one or two pieces' worth.  From these sums,
+ *  the mean squared distance of the pieces from their center of mass,
+ *  which measures how concentrated they are, takes a few arithmetic
+ *  operations.  The centralization of the pieces comes from a table of
+ *  bitboards, one per ring of squares around the center of the board,
+ *  at the cost of a population count per ring.
+ */
+final class CenterOfMass implements EvalTerm {
+
+    /** Return the number of SIDE's pieces. */
+    int count(Piece side) {
+        return _count[side.ordinal()];
+    }
+
+    /** Return the square nearest the center of mass of SIDE's pieces,
+     *  or null if SIDE has no pieces. */
+    Square center(Piece side) {
+        int k = side.ordinal(), n = _count[k];
+        if (n == 0) {
+            return null;
+        }
+        return sq((2 * _cols[k] + n) / (2 * n), (2 * _rows[k] + n) / (2 * n));
+    }
+
+    /** Return the mean squared distance of SIDE's pieces from their
+     *  center of mass, less (about) the least that so many pieces could
+     *  have, in hundredths of a square.  It is 0 for pieces packed as
+     *  closely as possible, and 0 if SIDE has no pieces. */
+    int concentration(Piece side) {
+        int k = side.ordinal(), n = _count[k];
+        if (n == 0) {
+            return 0;
+        }
+        int inertia = n * _squares[k] - _rows[k] * _rows[k]
+            - _cols[k] * _cols[k];
+        return Math.max(0, 100 * (inertia - MIN_INERTIA[n]) / (n * n));
+    }
+
+    /** Return the centralization of the pieces BITS: the sum over the
+     *  pieces of the number of rings of squares that separate each from
+     *  the edge of the board. */
+    static int centralization(long bits) {
+        int total = 0;
+        for (int ring = 1; ring < RINGS.length; ring += 1) {
+            total += ring * Long.bitCount(bits & RINGS[ring]);
+        }
+        return total;
+    }
+
+    @Override
+    public void reset(Board board) {
+        for (Piece side : SIDES) {
+            int k = side.ordinal();
+            _count[k] = _rows[k] = _cols[k] = _squares[k] = 0;
+            for (long bits = board.pieces(side); bits != 0;
+                 bits &= bits - 1) {
+                add(k, ALL_SQUARES[Long.numberOfTrailingZeros(bits)], 1);
+            }
+        }
+    }
+
+    @Override
+    public void moved(Board board, Square from, Square to,
+                      boolean capture) {
+        int k = board.get(to).ordinal();
+        add(k, from, -1);
+        add(k, to, 1);
+        if (capture) {
+            add(1 - k, to, -1);
+        }
+    }
+
+    @Override
+    public void retracted(Board board, Square from, Square to,
+                          boolean capture) {
+        int k = board.get(from).ordinal();
+        add(k, to, -1);
+        add(k, from, 1);
+        if (capture) {
+            add(1 - k, to, 1);
+        }
+    }
+
+    /** Add SIGN (1 or -1) times a piece on SQ to the sums of the side
+     *  with ordinal K. */
+    private void add(int k, Square sq, int sign) {
+        int r = sq.row(), c = sq.col();
+        _count[k] += sign;
+        _rows[k] += sign * r;
+        _cols[k] += sign * c;
+        _squares[k] += sign * (r * r + c * c);
+    }
+
+    /** The two sides. */
+    private static final Piece[] SIDES = { BP, WP };
+
+    /** Bitboards of the rings of squares around the center of the
+     *  board, indexed by the number of rings outside each. */
+    private static final long[] RINGS = new long[BOARD_SIZE / 2];
+
+    /** About the least value of the moment of inertia used by
+     *  concentration for N pieces, indexed by N. */
+    private static final int[] MIN_INERTIA = new int[NUM_SQUARES + 1];
+
+    static {
+        for (Square sq : ALL_SQUARES) {
+            int ring =
+                Math.min(Math.min(sq.row(), BOARD_SIZE - 1 - sq.row()),
+                         Math.min(sq.col(), BOARD_SIZE - 1 - sq.col()));
+            RINGS[ring] |= sq.bit();
+        }
+        for (int n = 1; n <= NUM_SQUARES; n += 1) {
+            MIN_INERTIA[n] =
+                Math.min(packedInertia(n, 0), packedInertia(n, 1));
+        }
+    }
+
+    /** Return the moment of inertia, as used by concentration, of the N
+     *  squares nearest the center of square d4 if HALF is 0, or to the
+     *  corner that d4 and e5 share if HALF is 1.  These are close to the
+     *  most compact arrangements of N pieces. */
+    private static int packedInertia(int n, int half) {
+        Square[] squares = ALL_SQUARES.clone();
+        Arrays.sort(squares, (a, b) ->
+                    distance2(a, half) - distance2(b, half));
+        int rows = 0, cols = 0, sum = 0;
+        for (int i = 0; i < n; i += 1) {
+            int r = squares[i].row(), c = squares[i].col();
+            rows += r;
+            cols += c;
+            sum += r * r + c * c;
+        }
+        return n * sum - rows * rows - cols * cols;
+    }
+
+    /** Return 4 times the squared distance of SQ from the center of
+     *  square d4 if HALF is 0, or from the corner that d4 and e5 share
+     *  if HALF is 1. */
+    private static int distance2(Square sq, int half) {
+        int dr = 2 * sq.row() - 6 - half, dc = 2 * sq.col() - 6 - half;
+        return dr * dr + dc * dc;
+    }
+
+    /** Number of pieces of each side, indexed by color ordinal. */
+    private final int[] _count = new int[2];
+    /** Sums of the rows and of the columns of each side's pieces,
+     *  indexed by color ordinal. */
+    private final int[] _rows = new int[2], _cols = new int[2];
+    /** Sums of the squared rows and columns of each side's pieces,
+     *  indexed by color ordinal. */
+    private final int[] _squares = new int[2];
+}
@@ -0,0 +1,131 @@
+package loa;
+
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** The Euler number of each side's pieces: the number of their
+ *  (8-connected) regions less the number of holes they enclose.  It
+ *  is found by counting quads, the 2x2 windows onto the board (with
+ *  one row and column of padding on each side): 4 times the Euler
+ *  number is the number of quads holding exactly one piece, less the
+ *  number holding exactly three, less twice the number holding just
+ *  two diagonal pieces.  A square lies in just four quads, all within
+ *  the 3x3 block around it, so the change that adding or removing a
+ *  piece makes to the count depends only on that block, and is looked
+ *  up in a table indexed by the block's contents.
+ *
+ *  As regions are never fewer than the Euler number, pieces whose
+ *  Euler number is more than 1 cannot be contiguous.  That test also
+ *  applies to a move before it is made, at the cost of two lookups,
+ *  which is why it is used to screen moves for connecting a side's
+ *  pieces.
+ */
+final class EulerNumber implements EvalTerm {
+
+    /** Return the Euler number of SIDE's pieces. */
+    int euler(Piece side) {
+        return _quads[side.ordinal()] / 4;
+    }
+
+    /** Return the Euler number that the pieces of the side to move on
+     *  BOARD would have after the move from FROM to TO. */
+    int eulerAfter(Board board, Square from, Square to) {
+        long mine = board.pieces(board.turn());
+        return (_quads[board.turn().ordinal()]
+                + change(mine & ~from.bit() | to.bit(), from, to)) / 4;
+    }
+
+    @Override
+    public void reset(Board board) {
+        for (Piece side : SIDES) {
+            long bits = 0;
+            int total = 0;
+            for (long rest = board.pieces(side); rest != 0;
+                 rest &= rest - 1) {
+                total += GAIN[block(bits, Long.numberOfTrailingZeros(rest))];
+                bits |= rest & -rest;
+            }
+            _quads[side.ordinal()] = total;
+        }
+    }
+
+    @Override
+    public void moved(Board board, Square from, Square to,
+                      boolean capture) {
+        Piece side = board.get(to);
+        _quads[side.ordinal()] += change(board.pieces(side), from, to);
+        if (capture) {
+            _quads[side.opposite().ordinal()] -=
+                GAIN[block(board.pieces(side.opposite()), to.index())];
+        }
+    }
+
+    @Override
+    public void retracted(Board board, Square from, Square to,
+                          boolean capture) {
+        Piece side = board.get(from);
+        _quads[side.ordinal()] += change(board.pieces(side), to, from);
+        if (capture) {
+            _quads[side.opposite().ordinal()] +=
+                GAIN[block(board.pieces(side.opposite()), to.index())];
+        }
+    }
+
+    /** Return the change in 4 times the Euler number of a side's pieces
+     *  made by moving one of them from FROM to TO, where BITS are the
+     *  side's pieces after the move. */
+    private static int change(long bits, Square from, Square to) {
+        return GAIN[block(bits, to.index())]
+            - GAIN[block(bits & ~to.bit(), from.index())];
+    }
+
+    /** Return the contents in BITS of the 3x3 block of squares around
+     *  the square with index SQ, as 9 bits in row-major order from the
+     *  lower left (0 for squares off the board). */
+    private static int block(long bits, int sq) {
+        long rows = Long.rotateRight(bits & BLOCKS[sq], sq - BOARD_SIZE - 1);
+        return (int) (rows & 07) | (int) (rows >>> 5) & 070
+            | (int) (rows >>> 10) & 0700;
+    }
+
+    /** The two sides. */
+    private static final Piece[] SIDES = { BP, WP };
+
+    /** The 3x3 blocks of squares around each square, indexed by Square
+     *  index. */
+    private static final long[] BLOCKS = new long[NUM_SQUARES];
+
+    /** The increase in 4 times the Euler number made by adding a piece
+     *  at the center of a 3x3 block, indexed by the block's contents (as
+     *  returned by block, the center being ignored). */
+    private static final int[] GAIN = new int[512];
+
+    static {
+        for (Square sq : ALL_SQUARES) {
+            BLOCKS[sq.index()] = Board.neighborhood(sq.bit());
+        }
+        int[] weights = new int[16];
+        for (int pattern = 0; pattern < 16; pattern += 1) {
+            int count = Integer.bitCount(pattern);
+            weights[pattern] = count == 1 ? 1 : count == 3 ? -1
+                : pattern == 0b1001 || pattern == 0b0110 ? -2 : 0;
+        }
+        for (int block = 0; block < GAIN.length; block += 1) {
+            for (int corner : new int[] { 0, 1, 3, 4 }) {
+                int with = 0, without = 0;
+                int[] cells = { corner, corner + 1, corner + 3, corner + 4 };
+                for (int i = 0; i < 4; i += 1) {
+                    if (cells[i] == 4 || (block & (1 << cells[i])) != 0) {
+                        with |= 1 << i;
+                        without |= cells[i] == 4 ? 0 : 1 << i;
+                    }
+                }
+                GAIN[block] += weights[with] - weights[without];
+            }
+        }
+    }
+
+    /** Four times the Euler number of each side, indexed by color
+     *  ordinal. */
+    private final int[] _quads = new int[2];
+}
@@ -0,0 +1,97 @@
+package loa;
+
+/** A small direct-mapped cache of static evaluations, indexed by
+ *  position key (see Board.key).  Iterative deepening, re-searches and
+ *  transpositions evaluate many leaf positions over and over; the cache
+ *  saves recomputing the heuristic for them.
+ *
+ *  Each entry is a single long: the bits of the key above SCORE_BITS,
+ *  and the score, as a 16-bit signed number, in the low SCORE_BITS.
+ *  The key bits just above SCORE_BITS select the entry, so the stored
+ *  bits identify the position but for its lowest SCORE_BITS bits, and
+ *  two positions are confused only if they agree in all the rest.
+ *  Entries are overwritten unconditionally.  Each Searcher has its own
+ *  cache, so no locking is needed, and a thread's cache stays in its
+ *  own processor cache.
+ */
+final class EvalCache {
+
+    /** Default number of entries: 128 KB per cache. */
+    static final int DEFAULT_ENTRIES = 1 << 14;
+
+    /** Value returned by probe for positions not in the cache. */
+    static final int MISSING = Integer.MIN_VALUE;
+
+    /** Number of low-order bits of an entry holding its score. */
+    private static final int SCORE_BITS = 16;
+
+    /** Mask selecting the score bits of an entry. */
+    private static final long SCORE_MASK = (1L << SCORE_BITS) - 1;
+
+    /** A cache of ENTRIES entries, rounded down to a power of two. */
+    EvalCache(int entries) {
+        if (entries <= 0) {
+            throw new IllegalArgumentException("cache size must be positive");
+        }
+        _slots = new long[Integer.highestOneBit(entries)];
+        _mask = _slots.length - 1;
+    }
+
+    /** Return the score stored for KEY, or MISSING if there is none. */
+    int probe(long key) {
+        long entry = _slots[index(key)];
+        _probes += 1;
+        if (entry == 0 || ((entry ^ key) & ~SCORE_MASK) != 0) {
+            return MISSING;
+        }
+        _hits += 1;
+        return (short) entry;
+    }
+
+    /** Record that the position with KEY has static value SCORE, which
+     *  must fit in a 16-bit signed number. */
+    void store(long key, int score) {
+        assert score == (short) score;
+        _slots[index(key)] = key & ~SCORE_MASK | score & SCORE_MASK;
+    }
+
+    /** Return the index of the entry for KEY. */
+    private int index(long key) {
+        return (int) (key >>> SCORE_BITS) & _mask;
+    }
+
+    /** Return my number of entries. */
+    int size() {
+        return _slots.length;
+    }
+
+    /** Return the number of probes since the last resetStatistics. */
+    long probes() {
+        return _probes;
+    }
+
+    /** Return the number of probes since the last resetStatistics that
+     *  found an entry. */
+    long hits() {
+        return _hits;
+    }
+
+    /** Return the fraction of probes since the last resetStatistics that
+     *  found an entry. */
+    double hitRate() {
+        return _probes == 0 ? 0.0 : (double) _hits / _probes;
+    }
+
+    /** Reset my probe and hit counts, keeping my entries. */
+    void resetStatistics() {
+        _probes = _hits = 0;
+    }
+
+    /** Entries: key above SCORE_BITS, score below. */
+    private final long[] _slots;
+    /** Mask selecting an entry index from the key bits above
+     *  SCORE_BITS. */
+    private final int _mask;
+    /** Statistics: number of probes and hits since resetStatistics. */
+    private long _probes, _hits;
+}
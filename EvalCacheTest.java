@@ -0,0 +1,39 @@
+package loa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the EvalCache class. */
+public class EvalCacheTest {
+
+    /** Test that stored scores are found again, and only for their own
+     *  keys. */
+    @Test
+    public void testStoreProbe() {
+        EvalCache cache = new EvalCache(1000);
+        assertEquals(512, cache.size());
+        long key = 0x123456789abcdefL;
+        assertEquals(EvalCache.MISSING, cache.probe(key));
+        cache.store(key, -321);
+        assertEquals(-321, cache.probe(key));
+        cache.store(key + 1, 1000);
+        assertEquals(1000, cache.probe(key + 1));
+        assertEquals(EvalCache.MISSING, cache.probe(key + (1L << 40)));
+        assertEquals(0.5, cache.hitRate(), 1e-9);
+        cache.resetStatistics();
+        assertEquals(0, cache.probes());
+    }
+
+    /** Test that a store replaces the entry of another key. */
+    @Test
+    public void testReplacement() {
+        EvalCache cache = new EvalCache(256);
+        long key1 = 7, key2 = key1 + ((long) cache.size() << 16);
+        cache.store(key1, 50);
+        cache.store(key2, -50);
+        assertEquals(EvalCache.MISSING, cache.probe(key1));
+        assertEquals(-50, cache.probe(key2));
+    }
+
+}
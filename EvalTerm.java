@@ -0,0 +1,24 @@
+package loa;
+
+/** A feature of a position used by the static evaluation, kept up to
+ *  date by its Board as moves are made and retracted, so that reading
+ *  it at a leaf of the search costs (nearly) nothing.  A Board calls
+ *  reset after any change other than a move or retraction (setting up
+ *  a position, setting a square, or copying), and moved or retracted
+ *  after the pieces have been placed for each move, so that a term
+ *  need only account for the squares that the move changed.
+ */
+interface EvalTerm {
+
+    /** Recompute my state from scratch for the position on BOARD. */
+    void reset(Board board);
+
+    /** Update my state for the move FROM-TO, which captured iff
+     *  CAPTURE, and which has just been made on BOARD. */
+    void moved(Board board, Square from, Square to, boolean capture);
+
+    /** Update my state for the move FROM-TO, which captured iff
+     *  CAPTURE, and which has just been retracted on BOARD. */
+    void retracted(Board board, Square from, Square to, boolean capture);
+
+}
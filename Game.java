@@ -2,7 +2,10 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.regex.Pattern;
@@ -37,6 +40,7 @@ class Game {
          Player manualPlayerTemplate, Player autoPlayerTemplate,
          boolean strict) {
         _view = view;
+        _board = new Board();
         _playing = false;
         _logFile = logFile;
         _input = new Scanner(System.in);
@@ -117,11 +121,17 @@ class Game {
         processH1(line);
         Matcher command = COMMAND_PATN.matcher(line);
         if (command.matches()) {
+            if (!command.group(1).equals("#") && mv(line) == null) {
+                _white.stopPondering();
+                _black.stopPondering();
+            }
             switch (command.group(1).toLowerCase()) {
             case "#":
                 break;
             case "new":
                 _board.clear();
+                _white.newGame();
+                _black.newGame();
                 _playing = true;
                 break;
             case "dump":
@@ -131,7 +141,8 @@ class Game {
                 manualCommand(command.group(2).toLowerCase());
                 break;
             case "auto":
-                autoCommand(command.group(2).toLowerCase());
+                autoCommand(command.group(2).toLowerCase(),
+                            command.group(3).toLowerCase());
                 break;
             case "quit":
                 quit();
@@ -146,6 +157,46 @@ class Game {
             case "limit":
                 limitCommand(command.group(2));
                 break;
+            case "time":
+                timeCommand(command.group(2));
+                break;
+            case "clock":
+                clockCommand(command.group(2), command.group(3));
+                break;
+            case "hash":
+                hashCommand(command.group(2));
+                break;
+            case "threads":
+                threadsCommand(command.group(2));
+                break;
+            case "parallel":
+                parallelCommand(command.group(2).toLowerCase());
+                break;
+            case "depth":
+                depthCommand(command.group(2));
+                break;
+            case "simulations":
+                simulationsCommand(command.group(2));
+                break;
+            case "solve":
+                solveCommand(command.group(2));
+                break;
+            case "solver":
+                solverCommand(command.group(2).toLowerCase());
+                break;
+            case "ponder":
+                ponderCommand(command.group(2).toLowerCase());
+                break;
+            case "analyze":
+                analyzeCommand(command.group(2));
+                break;
+            case "stats":
+                statsCommand(command.group(2));
+                break;
+            case "selective":
+                selectiveCommand(command.group(2).toLowerCase(),
+                                 command.group(3).toLowerCase());
+                break;
             case "undo":
                 undoH();
                 break;
@@ -156,10 +207,10 @@ class Game {
                 manualCommand("black");
                 break;
             case "aw":
-                autoCommand("white");
+                autoCommand("white", "");
                 break;
             case "ab":
-                autoCommand("black");
+                autoCommand("black", "");
                 break;
             case "?": case "help":
                 help();
@@ -202,9 +253,11 @@ class Game {
     private void manualCommand(String player) {
         switch (player) {
         case "white":
+            _white.stopPondering();
             _white = _manualPlayerTemplate.create(WP, this);
             break;
         case "black":
+            _black.stopPondering();
             _black = _manualPlayerTemplate.create(BP, this);
             break;
         default:
@@ -212,14 +265,33 @@ class Game {
         }
     }
 
-    /** Set player PLAYER ("white" or "black") to be an automated player. */
-    private void autoCommand(String player) {
+    /** Set player PLAYER ("white" or "black") to be an automated player
+     *  using ENGINE ("alphabeta" or "mcts"), or the default automated
+     *  player if ENGINE is empty. */
+    private void autoCommand(String player, String engine) {
+        Player template;
+        switch (engine) {
+        case "":
+            template = _autoPlayerTemplate;
+            break;
+        case "alphabeta":
+            template = new MachinePlayer();
+            break;
+        case "mcts":
+            template = new MCTSPlayer();
+            break;
+        default:
+            error("unknown engine: %s%n", engine);
+            return;
+        }
         switch (player) {
         case "white":
-            _white = _autoPlayerTemplate.create(WP, this);
+            _white.stopPondering();
+            _white = template.create(WP, this);
             break;
         case "black":
-            _black = _autoPlayerTemplate.create(BP, this);
+            _black.stopPondering();
+            _black = template.create(BP, this);
             break;
         default:
             error("unknown player: %s%n", player);
@@ -229,7 +301,7 @@ class Game {
     /** Seed random-number generator with SEED (as a long). */
     private void seedCommand(String seed) {
         try {
-            _randomSource.setSeed(Long.parseLong(seed));
+            setSeed(Long.parseLong(seed));
         } catch (NumberFormatException excp) {
             error("Invalid number: %s%n", seed);
         }
@@ -263,6 +335,192 @@ class Game {
         }
     }
 
+    /** Set the time allowed for each automated move to the number of
+     *  milliseconds denoted by the numeral MILLIS. */
+    private void timeCommand(String millis) {
+        try {
+            MachinePlayer.setTimeLimit(Long.parseLong(millis));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+    }
+
+    /** Give automated players a clock of the number of milliseconds
+     *  denoted by the numeral TOTAL for the whole game, gaining the
+     *  number denoted by the numeral INCREMENT (or none, if it is empty)
+     *  after each move.  A TOTAL of 0 returns to a time limit per
+     *  move. */
+    private void clockCommand(String total, String increment) {
+        try {
+            MachinePlayer.setClock(Long.parseLong(total),
+                                   increment.isEmpty() ? 0
+                                   : Long.parseLong(increment));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+    }
+
+    /** Set the size of the automated players' transposition table to the
+     *  number of megabytes denoted by the numeral MEGABYTES. */
+    private void hashCommand(String megabytes) {
+        try {
+            MachinePlayer.setTableSize(Integer.parseInt(megabytes));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+    }
+
+    /** Set the number of threads used by automated players to the
+     *  numeral THREADS. */
+    private void threadsCommand(String threads) {
+        try {
+            MachinePlayer.setThreads(Integer.parseInt(threads));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+    }
+
+    /** Set the way in which automated players divide their search among
+     *  threads to MODE, which is "smp" (independent helper searches) or
+     *  "split" (dividing the game tree). */
+    private void parallelCommand(String mode) {
+        switch (mode) {
+        case "smp":
+            MachinePlayer.setSplit(false);
+            break;
+        case "split":
+            MachinePlayer.setSplit(true);
+            break;
+        default:
+            throw new IllegalArgumentException("unknown parallel mode");
+        }
+    }
+
+    /** Make automated players search to the fixed depth denoted by the
+     *  numeral DEPTH, or by time if it is 0. */
+    private void depthCommand(String depth) {
+        try {
+            MachinePlayer.setDepthLimit(Integer.parseInt(depth));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+    }
+
+    /** Set the number of simulations per move of MCTS players to the
+     *  numeral SIMULATIONS. */
+    private void simulationsCommand(String simulations) {
+        try {
+            MCTSPlayer.setSimulations(Integer.parseInt(simulations));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+    }
+
+    /** Report the outcome of the current position under perfect play, as
+     *  determined by a proof solver visiting at most the number of nodes
+     *  denoted by the numeral NODES (or MachinePlayer.SOLVER_NODES if
+     *  NODES is empty). */
+    private void solveCommand(String nodes) {
+        long limit;
+        try {
+            limit = nodes.isEmpty() ? MachinePlayer.SOLVER_NODES
+                : Long.parseLong(nodes);
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+        ProofSolver solver = new ProofSolver(MachinePlayer.SOLVER_TABLE_SIZE);
+        Piece result = solver.solve(_board, limit, Long.MAX_VALUE);
+        String move = solver.bestMove() == 0 ? ""
+            : " by " + Move.mv(solver.bestMove());
+        if (result == null) {
+            reportNote("Unsolved after %d nodes.", solver.nodes());
+        } else if (result == EMP) {
+            reportNote("Draw%s (%d nodes).", move, solver.nodes());
+        } else {
+            reportNote("%s wins%s (%d nodes).",
+                       result == WP ? "White" : "Black", move,
+                       solver.nodes());
+        }
+    }
+
+    /** Turn the proof solver that runs alongside automated players'
+     *  searches on or off, as SETTING is "on" or "off". */
+    private void solverCommand(String setting) {
+        if (!setting.equals("on") && !setting.equals("off")) {
+            throw new IllegalArgumentException("setting must be on or off");
+        }
+        MachinePlayer.setSolver(setting.equals("on"));
+    }
+
+    /** Let automated players think during manual opponents' turns, or
+     *  not, as SETTING is "on" or "off". */
+    private void ponderCommand(String setting) {
+        if (!setting.equals("on") && !setting.equals("off")) {
+            throw new IllegalArgumentException("setting must be on or off");
+        }
+        MachinePlayer.setPonder(setting.equals("on"));
+    }
+
+    /** Report the best K moves in the current position, where K is the
+     *  numeral LINES, each with its value and principal variation, as
+     *  found by an automated player's search. */
+    private void analyzeCommand(String lines) {
+        int k;
+        try {
+            k = Integer.parseInt(lines);
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+        List<MachinePlayer.Variation> variations =
+            new MachinePlayer().analyze(_board, k);
+        if (variations.isEmpty()) {
+            reportNote("No moves to analyze.");
+        }
+        for (int i = 0; i < variations.size(); i += 1) {
+            reportNote("%d. %s", i + 1, variations.get(i));
+        }
+    }
+
+    /** Append the statistics of automated players' searches, as lines
+     *  of JSON, to the file named FILE, or stop recording them if FILE
+     *  is "off". */
+    private void statsCommand(String file) {
+        if (file.equals("off")) {
+            SearchStats.setLog(null);
+            return;
+        }
+        try {
+            FileOutputStream out = new FileOutputStream(file, true);
+            SearchStats.setLog(new PrintStream(out, true));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException("could not open " + file);
+        }
+    }
+
+    /** Switch the selective-search technique named TECHNIQUE ("null",
+     *  "lmr" or "futility") on or off according to SETTING ("on" or
+     *  "off"). */
+    private void selectiveCommand(String technique, String setting) {
+        int code;
+        switch (technique) {
+        case "null":
+            code = Searcher.NULL_MOVE;
+            break;
+        case "lmr":
+            code = Searcher.LATE_MOVE_REDUCTION;
+            break;
+        case "futility":
+            code = Searcher.FUTILITY;
+            break;
+        default:
+            throw new IllegalArgumentException("unknown technique");
+        }
+        if (!setting.equals("on") && !setting.equals("off")) {
+            throw new IllegalArgumentException("setting must be on or off");
+        }
+        Searcher.setSelective(code, setting.equals("on"));
+    }
+
     /** Perform the move designated by LINE, if a valid move.  Return
      *  true iff LINE has the syntax of a move. */
     private boolean processMove(String line) throws InterruptedException {
@@ -299,6 +557,7 @@ class Game {
                     announceWinner();
                     _playing = false;
                 }
+                stopPondering();
                 if (_playing) {
                     switch (_board.turn()) {
                     case WP:
@@ -324,6 +583,21 @@ class Game {
         }
     }
 
+    /** Stop automated players from pondering except while they wait for
+     *  a manual opponent's move in a game in progress.  Commands other
+     *  than moves also stop pondering (see processCommand), since they
+     *  may change the settings that a ponder search is using. */
+    private void stopPondering() {
+        if (!_playing) {
+            _white.stopPondering();
+            _black.stopPondering();
+        } else if (_board.turn() == WP && !_white.isManual()) {
+            _black.stopPondering();
+        } else if (_board.turn() == BP && !_black.isManual()) {
+            _white.stopPondering();
+        }
+    }
+
     /** Print an announcement of the winner.  Requires that the game has been
      *  won. */
     private void announceWinner() {
@@ -346,6 +620,11 @@ class Game {
         return _randomSource.nextInt(n);
     }
 
+    /** Seed the current random source with SEED. */
+    void setSeed(long seed) {
+        _randomSource.setSeed(seed);
+    }
+
     /** Print a help message. */
     void help() {
         Main.printResource(HELP_FILE);
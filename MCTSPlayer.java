@@ -0,0 +1,443 @@
+package loa;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static loa.Piece.*;
+
+/** An automated Player that chooses moves by Monte Carlo tree search
+ *  (UCT).  Each simulation descends the search tree from the current
+ *  position, choosing at each node the child with the greatest upper
+ *  confidence bound on its win rate, expands the node it reaches, and
+ *  finishes the game with a playout of random moves (always taking a
+ *  move that connects the mover's pieces when there is one).  The result
+ *  is credited to every node on the path.  The move played is the most
+ *  visited child of the root.
+ *
+ *  Simulations continue until the simulation budget or the time limit
+ *  shared with MachinePlayer is used up, or if MachinePlayers have a
+ *  game clock (see MachinePlayer.setClock), until the time that a clock
+ *  of my own allows for the move.  They run in as many threads as
+ *  MachinePlayer searches with, all sharing one tree; a "virtual loss"
+ *  recorded on each node as a simulation passes through it steers
+ *  concurrent simulations apart.  The subtree for the position reached
+ *  after the opponent's reply is kept for the next move.  The tree,
+ *  including the part kept, is limited in size (see setMaxTreeSize), so
+ *  that long searches do not exhaust memory.
+ */
+class MCTSPlayer extends Player {
+
+    /** Default number of simulations per move.  Each simulation adds
+     *  about one node's children, around 1.5KB, to the tree, until the
+     *  tree reaches its greatest size. */
+    static final int DEFAULT_SIMULATIONS = 100000;
+    /** Default greatest number of nodes in the tree, around 50MB.  Once
+     *  the tree is this large, simulations stop expanding it and play
+     *  out from the leaves they reach. */
+    static final int DEFAULT_MAX_TREE_SIZE = 1 << 20;
+    /** Weight of the exploration term of the UCT formula. */
+    private static final double EXPLORATION = 0.7;
+    /** Greatest length of a playout, in moves. */
+    private static final int MAX_PLAYOUT = 200;
+
+    /** A new MCTSPlayer with no piece or controller (intended to produce
+     *  a template). */
+    MCTSPlayer() {
+        this(null, null);
+    }
+
+    /** An MCTSPlayer that plays the SIDE pieces in GAME. */
+    MCTSPlayer(Piece side, Game game) {
+        super(side, game);
+    }
+
+    @Override
+    String getMove() {
+        assert side() == getGame().getBoard().turn();
+        Move choice = searchForMove();
+        getGame().reportMove(choice);
+        return choice.toString();
+    }
+
+    @Override
+    void newGame() {
+        _timer = null;
+    }
+
+    @Override
+    Player create(Piece piece, Game game) {
+        return new MCTSPlayer(piece, game);
+    }
+
+    @Override
+    boolean isManual() {
+        return false;
+    }
+
+    /** Set the number of simulations run for each move to
+     *  SIMULATIONS. */
+    static void setSimulations(int simulations) {
+        if (simulations <= 0) {
+            throw new IllegalArgumentException(
+                "need at least one simulation");
+        }
+        _simulations = simulations;
+    }
+
+    /** Limit the search tree to at most NODES nodes, counting those kept
+     *  from the previous move. */
+    static void setMaxTreeSize(int nodes) {
+        if (nodes <= 0) {
+            throw new IllegalArgumentException("need at least one node");
+        }
+        _maxTreeSize = nodes;
+    }
+
+    /** Return the number of nodes in my search tree. */
+    int treeSize() {
+        return _root == null ? 0 : _root.size();
+    }
+
+    /** Return a move chosen by simulations from the current position,
+     *  which must not be a finished game. */
+    private Move searchForMove() {
+        Board board = getBoard();
+        long start = System.currentTimeMillis();
+        _timer = MachinePlayer.timer(_timer);
+        long deadline;
+        if (_timer != null) {
+            _timer.startMove(board, start);
+            deadline = _timer.softDeadline();
+        } else {
+            deadline = start + MachinePlayer.getTimeLimit();
+        }
+        reuseTree(board);
+        int reused = _root.visits();
+        AtomicInteger budget = new AtomicInteger(_simulations);
+        int threads = MachinePlayer.getThreads();
+        Thread[] helpers = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i += 1) {
+            long seed = getGame().randInt(Integer.MAX_VALUE);
+            helpers[i] = new Thread(() -> simulate(board, budget, deadline,
+                                                   seed),
+                                    "loa-mcts-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+        simulate(board, budget, deadline,
+                 getGame().randInt(Integer.MAX_VALUE));
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (_timer != null) {
+            _timer.endMove(System.currentTimeMillis());
+        }
+        Node best = _root.mostVisited();
+        if (best == null) {
+            return board.legalMoves().get(0);
+        }
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        int simulations = _root.visits() - reused;
+        Utils.debug(1, "mcts: %s, %d/%d visits, %.1f%% wins; %d simulations "
+                    + "(%d reused), %d/s, %d threads",
+                    Move.mv(best._move), best.visits(), _root.visits(),
+                    100 * best.winRate(), simulations, reused,
+                    simulations * 1000L / millis, threads);
+        return Move.mv(best._move);
+    }
+
+    /** Return the number of simulations through the node of my tree
+     *  reached from its root by the moves LINE, or 0 if there is no such
+     *  node. */
+    int visits(Move... line) {
+        Node node = node(line);
+        return node == null ? 0 : node.visits();
+    }
+
+    /** Return the total reward of the simulations through the node of my
+     *  tree reached from its root by the moves LINE, counting 2 for a win
+     *  by the side that made the last of them and 1 for a tie, or 0 if
+     *  there is no such node. */
+    int reward(Move... line) {
+        Node node = node(line);
+        return node == null ? 0 : node.reward();
+    }
+
+    /** Return the node of my tree reached from its root by the moves
+     *  LINE, or null if there is none. */
+    private Node node(Move... line) {
+        Node node = _root;
+        for (int i = 0; node != null && i < line.length; i += 1) {
+            node = node.child(line[i].code());
+        }
+        return node;
+    }
+
+    /** Make _root the tree for BOARD: the subtree of the previous tree
+     *  for the position reached by my last move and the opponent's reply,
+     *  if there is one, and otherwise a new tree. */
+    private void reuseTree(Board board) {
+        List<Move> moves = board.getMoves();
+        Node root = null;
+        if (_root != null && moves.size() >= 2) {
+            Board previous = new Board(board);
+            previous.retract();
+            previous.retract();
+            if (previous.key() == _rootKey) {
+                Node child = _root.child(moves.get(moves.size() - 2).code());
+                root = child == null ? null
+                    : child.child(moves.get(moves.size() - 1).code());
+            }
+        }
+        _root = root == null ? new Node(0, null) : root;
+        _root._parent = null;
+        _rootKey = board.key();
+        _room.set(_maxTreeSize - _root.size());
+    }
+
+    /** Run simulations from BOARD, which is at the root of my tree, while
+     *  BUDGET, which counts the simulations remaining, is positive and
+     *  DEADLINE has not passed.  SEED initializes the playouts' random
+     *  numbers. */
+    private void simulate(Board board, AtomicInteger budget, long deadline,
+                          long seed) {
+        Board work = new Board(board);
+        Random random = new Random(seed);
+        int[] moves = new int[Board.MAX_MOVES];
+        int start = work.movesMade();
+        while (budget.getAndDecrement() > 0
+               && System.currentTimeMillis() < deadline) {
+            Node node = _root;
+            while (work.winner() == null) {
+                Node child = node.select(work, _room);
+                if (child == null) {
+                    break;
+                }
+                work.makeMove(child._move);
+                node = child;
+                if (child.visits() == 1) {
+                    break;
+                }
+            }
+            Piece winner = playout(work, random, moves);
+            for (; node != null; node = node._parent) {
+                node.credit(winner);
+            }
+            while (work.movesMade() > start) {
+                work.retract();
+            }
+        }
+    }
+
+    /** Finish the game on BOARD with random moves, taking any move that
+     *  connects the mover's pieces, using MOVES as a move buffer and
+     *  RANDOM for random numbers, and return the winner (EMP for a tie).
+     *  A playout cut short after MAX_PLAYOUT moves, or by a side having
+     *  no moves, is won by the side with fewer groups. */
+    private static Piece playout(Board board, Random random, int[] moves) {
+        for (int k = 0; k < MAX_PLAYOUT && board.winner() == null; k += 1) {
+            int n = board.legalMoves(moves);
+            if (n == 0) {
+                break;
+            }
+            long mine = board.pieces(board.turn());
+            int move = moves[random.nextInt(n)];
+            for (int i = 0; i < n; i += 1) {
+                if (!board.mayConnect(moves[i])) {
+                    continue;
+                }
+                long toBit = 1L << Move.toIndex(moves[i]);
+                long after = mine & ~(1L << Move.fromIndex(moves[i]))
+                    | toBit;
+                if (Board.contiguous(toBit, after) == after) {
+                    move = moves[i];
+                    break;
+                }
+            }
+            board.makeMove(move);
+        }
+        Piece winner = board.winner();
+        if (winner != null) {
+            return winner;
+        }
+        int white = board.numRegions(WP), black = board.numRegions(BP);
+        return white < black ? WP : white > black ? BP : EMP;
+    }
+
+    /** A node of the search tree: a position, reached from its parent by
+     *  a move.  The statistics of a node's children are guarded by the
+     *  node's monitor. */
+    private static final class Node {
+
+        /** A node reached by MOVE (a Move code, or 0 at the root) from
+         *  PARENT. */
+        Node(int move, Node parent) {
+            _move = move;
+            _parent = parent;
+        }
+
+        /** Return my child for the position on BOARD (which is mine)
+         *  with the greatest upper confidence bound, expanding me first
+         *  if I have no children yet, and record a visit to it (a virtual
+         *  loss until credited).  ROOM counts the nodes that may still be
+         *  added to the tree, and is reduced by those that expanding me
+         *  adds.  Return null if there are no legal moves, or if I must
+         *  be expanded and there is not room. */
+        synchronized Node select(Board board, AtomicInteger room) {
+            if (_children == null) {
+                int[] moves = new int[Board.MAX_MOVES];
+                int n = board.legalMoves(moves);
+                if (room.addAndGet(-n) < 0) {
+                    room.addAndGet(n);
+                    return null;
+                }
+                _children = new Node[n];
+                for (int i = 0; i < n; i += 1) {
+                    _children[i] = new Node(moves[i], this);
+                }
+                _mover = board.turn();
+            }
+            int total = 0;
+            for (Node child : _children) {
+                total += child._visits;
+            }
+            double logTotal = Math.log(Math.max(1, total));
+            Node best = null;
+            double bestBound = Double.NEGATIVE_INFINITY;
+            for (Node child : _children) {
+                if (child._visits == 0) {
+                    best = child;
+                    break;
+                }
+                double bound = child._reward / (2.0 * child._visits)
+                    + EXPLORATION * Math.sqrt(logTotal / child._visits);
+                if (bound > bestBound) {
+                    bestBound = bound;
+                    best = child;
+                }
+            }
+            if (best != null) {
+                best._visits += 1;
+            }
+            return best;
+        }
+
+        /** Credit me with the result of a simulation won by WINNER (EMP
+         *  for a tie), from the point of view of the side that made my
+         *  move. */
+        void credit(Piece winner) {
+            Node parent = _parent;
+            if (parent == null) {
+                synchronized (this) {
+                    _visits += 1;
+                }
+                return;
+            }
+            synchronized (parent) {
+                _reward += winner == EMP ? 1 : winner == parent._mover ? 2 : 0;
+            }
+        }
+
+        /** Return my child reached by MOVE (a Move code, with or without
+         *  its capture flag), or null if there is none. */
+        synchronized Node child(int move) {
+            if (_children != null) {
+                for (Node child : _children) {
+                    if ((child._move | Move.CAPTURE_FLAG)
+                        == (move | Move.CAPTURE_FLAG)) {
+                        return child;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /** Return the number of nodes in my subtree, including me. */
+        int size() {
+            int size = 1;
+            Node[] children;
+            synchronized (this) {
+                children = _children;
+            }
+            if (children != null) {
+                for (Node child : children) {
+                    size += child.size();
+                }
+            }
+            return size;
+        }
+
+        /** Return my most visited child, or null if I have none. */
+        synchronized Node mostVisited() {
+            Node best = null;
+            for (Node child : _children == null ? new Node[0] : _children) {
+                if (best == null || child._visits > best._visits) {
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /** Return the number of simulations through me. */
+        int visits() {
+            Node lock = _parent == null ? this : _parent;
+            synchronized (lock) {
+                return _visits;
+            }
+        }
+
+        /** Return the total reward of the simulations through me. */
+        int reward() {
+            Node lock = _parent == null ? this : _parent;
+            synchronized (lock) {
+                return _reward;
+            }
+        }
+
+        /** Return the fraction of simulations through me won by the side
+         *  that made my move. */
+        double winRate() {
+            Node lock = _parent == null ? this : _parent;
+            synchronized (lock) {
+                return _visits == 0 ? 0.0 : _reward / (2.0 * _visits);
+            }
+        }
+
+        /** The move leading to me from my parent. */
+        private final int _move;
+        /** My parent, or null at the root. */
+        private Node _parent;
+        /** My children, or null if I have not been expanded. */
+        private Node[] _children;
+        /** The side to move in my position, once I have been expanded. */
+        private Piece _mover;
+        /** Number of simulations that have passed through me. */
+        private int _visits;
+        /** Sum of the results of simulations through me, counting 2 for
+         *  a win by the side that made my move and 1 for a tie. */
+        private int _reward;
+    }
+
+    /** The search tree for the position of my last move. */
+    private Node _root;
+
+    /** The key (see Board.key) of the position at _root. */
+    private long _rootKey;
+
+    /** My game clock, or null if I have not yet needed one. */
+    private TimeManager _timer;
+
+    /** Number of nodes that may still be added to my tree. */
+    private final AtomicInteger _room = new AtomicInteger();
+
+    /** Number of simulations run for each move. */
+    private static int _simulations = DEFAULT_SIMULATIONS;
+
+    /** Greatest number of nodes in the search tree. */
+    private static int _maxTreeSize = DEFAULT_MAX_TREE_SIZE;
+}
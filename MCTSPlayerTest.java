@@ -0,0 +1,136 @@
+package loa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of the MCTSPlayer class. */
+public class MCTSPlayerTest {
+
+    /** Number of simulations per move in these tests. */
+    private static final int SIMULATIONS = 300;
+
+    /** Seed of the games' random numbers. */
+    private static final long SEED = 42;
+
+    /** Return a new game, with its random numbers seeded by SEED. */
+    private static Game game() {
+        Game game = MachinePlayerTest.game();
+        game.setSeed(SEED);
+        return game;
+    }
+
+    /** Test that every simulation passes through the root and one of its
+     *  children, that rewards are within bounds, and that the same seed
+     *  gives the same counts. */
+    @Test
+    public void testCounts() {
+        MCTSPlayer.setSimulations(SIMULATIONS);
+        try {
+            Game game = game();
+            MCTSPlayer player = new MCTSPlayer(BP, game);
+            Move choice = Move.mv(player.getMove());
+            assertEquals(SIMULATIONS, player.visits());
+            assertEquals(0, player.reward());
+            int visits = 0;
+            for (Move mv : game.getBoard().legalMoves()) {
+                int n = player.visits(mv);
+                assertTrue(n <= player.visits(choice));
+                assertTrue(player.reward(mv) >= 0
+                           && player.reward(mv) <= 2 * n);
+                visits += n;
+            }
+            assertEquals(SIMULATIONS, visits);
+
+            Game again = game();
+            MCTSPlayer other = new MCTSPlayer(BP, again);
+            assertEquals(choice, Move.mv(other.getMove()));
+            for (Move mv : game.getBoard().legalMoves()) {
+                assertEquals(player.visits(mv), other.visits(mv));
+                assertEquals(player.reward(mv), other.reward(mv));
+            }
+        } finally {
+            MCTSPlayer.setSimulations(MCTSPlayer.DEFAULT_SIMULATIONS);
+        }
+    }
+
+    /** Test that the subtree for the position after the opponent's reply
+     *  is kept when the position before my move and the reply is the one
+     *  at the root, and a new tree is started otherwise. */
+    @Test
+    public void testReuse() {
+        MCTSPlayer.setSimulations(SIMULATIONS);
+        try {
+            Game game = game();
+            Board board = game.getBoard();
+            MCTSPlayer player = new MCTSPlayer(BP, game);
+            Move choice = Move.mv(player.getMove());
+            board.makeMove(choice);
+            Move reply = null;
+            for (Move mv : board.legalMoves()) {
+                if (reply == null
+                    || player.visits(choice, mv)
+                       > player.visits(choice, reply)) {
+                    reply = mv;
+                }
+            }
+            int reused = player.visits(choice, reply);
+            assertTrue(reused > 0);
+            board.makeMove(reply);
+            choice = Move.mv(player.getMove());
+            assertEquals(reused + SIMULATIONS, player.visits());
+
+            board.makeMove(choice);
+            board.makeMove(board.legalMoves().get(0));
+            board.makeMove(board.legalMoves().get(0));
+            board.makeMove(board.legalMoves().get(0));
+            player.getMove();
+            assertEquals(SIMULATIONS, player.visits());
+        } finally {
+            MCTSPlayer.setSimulations(MCTSPlayer.DEFAULT_SIMULATIONS);
+        }
+    }
+
+    /** Test that a move that wins at once is found, and that every
+     *  simulation through it is credited as a win. */
+    @Test
+    public void testOneMoveWin() {
+        MCTSPlayer.setSimulations(SIMULATIONS);
+        try {
+            Game game = game();
+            game.getBoard().copyFrom(new Board(SearcherTest.CONNECT, WP));
+            MCTSPlayer player = new MCTSPlayer(WP, game);
+            Move win = Move.mv(player.getMove());
+            assertEquals(Move.mv("c4-c3"), win);
+            assertTrue(player.visits(win) > 0);
+            assertEquals(2 * player.visits(win), player.reward(win));
+        } finally {
+            MCTSPlayer.setSimulations(MCTSPlayer.DEFAULT_SIMULATIONS);
+        }
+    }
+
+    /** Test that the tree stops growing at its greatest size, counting
+     *  the part kept from the previous move, while simulations go on. */
+    @Test
+    public void testMaxTreeSize() {
+        MCTSPlayer.setSimulations(SIMULATIONS);
+        MCTSPlayer.setMaxTreeSize(SIMULATIONS);
+        try {
+            Game game = game();
+            Board board = game.getBoard();
+            MCTSPlayer player = new MCTSPlayer(BP, game);
+            board.makeMove(Move.mv(player.getMove()));
+            assertEquals(SIMULATIONS, player.visits());
+            assertTrue(player.treeSize() <= SIMULATIONS);
+            board.makeMove(board.legalMoves().get(0));
+            player.getMove();
+            assertTrue(player.visits() >= SIMULATIONS);
+            assertTrue(player.treeSize() <= SIMULATIONS);
+        } finally {
+            MCTSPlayer.setMaxTreeSize(MCTSPlayer.DEFAULT_MAX_TREE_SIZE);
+            MCTSPlayer.setSimulations(MCTSPlayer.DEFAULT_SIMULATIONS);
+        }
+    }
+}
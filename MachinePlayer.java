@@ -2,24 +2,52 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static loa.Piece.*;
+import static loa.Searcher.*;
 
-/** An automated Player.
+/** An automated Player.  If pondering is on and its opponent is a
+ *  manual player, it goes on thinking after choosing a move, searching
+ *  the position after the reply that its principal variation predicts
+ *  (or, failing a prediction, the position before any reply) until its
+ *  next turn.  If the reply is as predicted, that search simply
+ *  continues; otherwise it is abandoned, leaving its results in the
+ *  transposition table.
  *  @author Heming Wu
  */
 class MachinePlayer extends Player {
 
-    /** A position-score magnitude indicating a win (for white if positive,
-     *  black if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
-    /** A magnitude greater than a normal value. */
-    private static final int INFTY = Integer.MAX_VALUE;
     /** A bonus point to reward. */
     private static final int BONUS1 = 50;
     /** A bonus point to reward. */
     private static final int BONUS2 = 200;
+    /** Bonus for having the lower Euler number (regions less holes). */
+    private static final int EULER_BONUS = 50;
+    /** Bonus for having the more concentrated pieces. */
+    private static final int CONCENTRATION_BONUS = 100;
+    /** Bonus for having the more centralized pieces. */
+    private static final int CENTRALIZATION_BONUS = 50;
+    /** Default time allowed for each move, in milliseconds. */
+    static final long DEFAULT_TIME_LIMIT = 1000;
+    /** Default size of the transposition table, in megabytes. */
+    static final int DEFAULT_TABLE_SIZE = 16;
+    /** The deepest iteration that searchForMove will attempt. */
+    static final int MAX_DEPTH = 64;
+    /** Size of a proof solver's table, in megabytes. */
+    static final int SOLVER_TABLE_SIZE = 16;
+    /** Most nodes a proof solver visits per move. */
+    static final long SOLVER_NODES = 2000000;
+    /** Least depth of an iteration searched with an aspiration window. */
+    private static final int ASPIRATION_DEPTH = 3;
+    /** Initial half-width of an aspiration window. */
+    private static final int ASPIRATION_WINDOW = 50;
+    /** Aspiration windows that would be wider than this are replaced by
+     *  an infinite window. */
+    private static final int MAX_ASPIRATION_WINDOW = 1000;
+
     /** A new MachinePlayer with no piece or controller (intended to produce
      *  a template). */
     MachinePlayer() {
@@ -36,12 +64,48 @@ class MachinePlayer extends Player {
         Move choice;
 
         assert side() == getGame().getBoard().turn();
-        int depth;
-        choice = searchForMove();
+        Board board = getBoard();
+        TimeManager timer = timer();
+        if (timer != null) {
+            timer.startMove(board, System.currentTimeMillis());
+        }
+        _ponderHit = false;
+        choice = finishPondering(timer);
+        if (choice == null) {
+            choice = searchForMove(board, timer);
+        }
+        if (timer != null) {
+            timer.endMove(System.currentTimeMillis());
+            Utils.debug(1, "clock: %d ms left%s", timer.remaining(),
+                        timer.easy() ? ", easy move" : "");
+        }
         getGame().reportMove(choice);
+        if (_ponder && (side() == WP ? getGame().manualBlack()
+                        : getGame().manualWhite())) {
+            startPondering(choice);
+        }
         return choice.toString();
     }
 
+    @Override
+    void stopPondering() {
+        if (_ponderThread == null) {
+            return;
+        }
+        halt();
+        try {
+            _ponderThread.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        _ponderThread = null;
+    }
+
+    @Override
+    void newGame() {
+        _timer = null;
+    }
+
     @Override
     Player create(Piece piece, Game game) {
         return new MachinePlayer(piece, game);
@@ -52,19 +116,537 @@ class MachinePlayer extends Player {
         return false;
     }
 
-    /** Return a move after searching the game tree to DEPTH>0 moves
-     *  from the current position. Assumes the game is not over. */
-    private Move searchForMove() {
-        Board work = new Board(getBoard());
-        int value;
-        assert side() == work.turn();
-        _foundMove = null;
-        if (side() == WP) {
-            value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
+    /** Set the time allowed for each move to MILLIS milliseconds. */
+    static void setTimeLimit(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("time limit must be positive");
+        }
+        _timeLimit = millis;
+    }
+
+    /** Give each MachinePlayer (and MCTSPlayer) a clock of TOTAL
+     *  milliseconds for the game, to which INCREMENT milliseconds are
+     *  added after each move, and divide it among its moves with a
+     *  TimeManager.  If TOTAL is 0, allow each move the time limit
+     *  instead. */
+    static void setClock(long total, long increment) {
+        if (total < 0 || increment < 0) {
+            throw new IllegalArgumentException("bad clock settings");
+        }
+        _clockTotal = total;
+        _clockIncrement = increment;
+    }
+
+    /** Return the time allowed for each move, in milliseconds. */
+    static long getTimeLimit() {
+        return _timeLimit;
+    }
+
+    /** Replace the transposition table shared by all MachinePlayers with
+     *  an empty one of about MEGABYTES megabytes. */
+    static void setTableSize(int megabytes) {
+        _table.resize(megabytes);
+    }
+
+    /** Set the number of threads used to search each move to THREADS.
+     *  Unless split searching is on (see setSplit), all threads but the
+     *  first are helpers that run their own iterative-deepening searches
+     *  of the same position, sharing results through the transposition
+     *  table ("lazy SMP"). */
+    static void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        _threads = threads;
+    }
+
+    /** If SOLVER, run a proof solver alongside each search, and play any
+     *  win that it proves. */
+    static void setSolver(boolean solver) {
+        _solverOn = solver;
+    }
+
+    /** If PONDER, let MachinePlayers think during their manual
+     *  opponents' turns. */
+    static void setPonder(boolean ponder) {
+        _ponder = ponder;
+    }
+
+    /** Return the number of threads used to search each move. */
+    static int getThreads() {
+        return _threads;
+    }
+
+    /** If SPLIT, divide each iteration of the search among the threads
+     *  by splitting the tree (see SplitSearch) instead of using lazy
+     *  SMP helpers. */
+    static void setSplit(boolean split) {
+        _split = split;
+    }
+
+    /** Search each move to exactly DEPTH plies, regardless of the time
+     *  limit, or by time as usual if DEPTH is 0.  Used for analysis, where
+     *  results should not depend on the speed of the machine. */
+    static void setDepthLimit(int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth out of range");
+        }
+        _depthLimit = depth;
+    }
+
+    /** Return a move for the side to move on BOARD after searching the
+     *  game tree by iterative deepening, until MAX_DEPTH is reached (or
+     *  to exactly the depth limit, if one is set) or time runs out.  Time
+     *  runs out at the time limit or, if TIMER is not null, as TIMER
+     *  decides, having started the move.  The result is the best move of
+     *  the deepest completed iteration.  Assumes the game is not over. */
+    private Move searchForMove(Board board, TimeManager timer) {
+        long start = System.currentTimeMillis();
+        beginSearch(board, start,
+                    _depthLimit > 0 ? Long.MAX_VALUE
+                    : timer != null ? timer.hardDeadline()
+                    : start + _timeLimit);
+        return finishSearch(board, start, timer);
+    }
+
+    /** Return my clock for the game, or null if each move is allowed the
+     *  time limit or searched to a fixed depth.  The clock is new if the
+     *  clock settings have changed or a new game has begun (see
+     *  newGame); taking back moves does not reset it. */
+    private TimeManager timer() {
+        if (_depthLimit > 0) {
+            return null;
+        }
+        _timer = timer(_timer);
+        return _timer;
+    }
+
+    /** Return TIMER if it is a clock with the current clock settings,
+     *  a new clock with those settings if not, or null if each move is
+     *  allowed the time limit. */
+    static TimeManager timer(TimeManager timer) {
+        if (_clockTotal == 0) {
+            return null;
+        }
+        if (timer == null || timer.total() != _clockTotal
+            || timer.increment() != _clockIncrement) {
+            return new TimeManager(_clockTotal, _clockIncrement);
+        }
+        return timer;
+    }
+
+    /** Prepare to search BOARD from time START until DEADLINE, starting
+     *  any helper and solver threads.  Once this returns, halt stops the
+     *  search.  The search keeps the number of threads and split mode in
+     *  effect now, whatever commands change them while it runs. */
+    private void beginSearch(Board board, long start, long deadline) {
+        _halted = false;
+        _easyNodes = 0;
+        _searchThreads = _threads;
+        _searchSplitter = splitting() ? splitter() : null;
+        _stats = new SearchStats(board, start, _table);
+        _searcher.setDeadline(deadline);
+        _searcher.newSearch();
+        _searcher.orderer().clearStatistics();
+        _table.newSearch();
+        if (_searchSplitter != null) {
+            _searchSplitter.setDeadline(deadline);
         } else {
-            value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
+            startHelpers(board, deadline);
+        }
+        startSolver(board, deadline);
+    }
+
+    /** Carry out the search of BOARD prepared by beginSearch, which
+     *  began at time START, and return the move found, as for
+     *  searchForMove(BOARD, TIMER).  If TIMER is not null, it decides
+     *  after each iteration whether to start another. */
+    private Move finishSearch(Board board, long start, TimeManager timer) {
+        Piece side = board.turn();
+        int sense = side == WP ? 1 : -1;
+        int maxDepth = _depthLimit > 0 ? _depthLimit : MAX_DEPTH;
+        _bestMove = null;
+        _aspirationFailures = 0;
+        int value = 0;
+        for (int depth = 1; depth <= maxDepth; depth += 1) {
+            value = aspirationSearch(board, depth, sense, value);
+            if (_stopped || _foundMove == null) {
+                break;
+            }
+            _bestMove = _foundMove;
+            _principalVariation = _foundLine;
+            _stats.iteration(depth, value, _nodes, _principalVariation);
+            if (isWin(value) || _halted) {
+                break;
+            }
+            if (timer != null) {
+                timer.iterationDone(_bestMove, sense * value);
+                if (timer.wantsEasyTest()
+                    && isEasy(board, depth, sense * value)) {
+                    timer.setEasy();
+                }
+                if (!timer.startIteration(System.currentTimeMillis())) {
+                    break;
+                }
+            }
+        }
+        long nodes = _searchSplitter != null ? _nodes : stopHelpers(start);
+        stopSolver(side);
+        if (_bestMove == null) {
+            _bestMove = board.legalMoves().get(0);
+        }
+        _stats.finish(_bestMove, nodes, _searchThreads, _searcher);
+        _stats.report();
+        Utils.debug(1, "quiescence: %d nodes (%.1f%%), %d stand-pat cutoffs, "
+                    + "%d delta prunes, %d connections",
+                    _searcher.quiescenceNodes(),
+                    100.0 * _searcher.quiescenceNodes()
+                    / Math.max(1, _searcher.nodes()),
+                    _searcher.standPatCutoffs(), _searcher.deltaPrunes(),
+                    _searcher.connections());
+        Utils.debug(1, "selective: %d/%d null-move cutoffs, %d/%d "
+                    + "reductions re-searched, %d futility prunes",
+                    _searcher.nullCutoffs(), _searcher.nullTries(),
+                    _searcher.reSearches(), _searcher.reductions(),
+                    _searcher.futilityPrunes());
+        Utils.debug(1, "pvs: %d re-searches, %d aspiration failures",
+                    _searcher.pvReSearches(), _aspirationFailures);
+        return _bestMove;
+    }
+
+    /** Return the K best moves from BOARD, best first, each with its
+     *  exact value and principal variation, found by iterative deepening
+     *  within the time or depth limit for a move.  There are fewer than K
+     *  if BOARD has fewer legal moves, and none if the game is over.
+     *  Each iteration searches for the best move, then for the best of
+     *  the rest, and so on, trying first the move of the same rank in
+     *  the previous iteration.  Since the searches share the
+     *  transposition table, each after the first costs much less than a
+     *  search of its own.  The result is that of the deepest iteration
+     *  completed.  Analysis uses my Searcher alone, without helper
+     *  threads. */
+    List<Variation> analyze(Board board, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("need at least one line");
+        }
+        List<Variation> result = new ArrayList<>();
+        if (board.gameOver()) {
+            return result;
+        }
+        k = Math.min(k, board.legalMoves().size());
+        int sense = board.turn() == WP ? 1 : -1;
+        long start = System.currentTimeMillis();
+        int maxDepth = _depthLimit > 0 ? _depthLimit : MAX_DEPTH;
+        _searcher.setDeadline(_depthLimit > 0 ? Long.MAX_VALUE
+                              : start + _timeLimit);
+        _searcher.newSearch();
+        _table.newSearch();
+        for (int depth = 1; depth <= maxDepth; depth += 1) {
+            List<Variation> lines = new ArrayList<>();
+            int[] found = new int[k];
+            boolean decided = true;
+            for (int i = 0; i < k; i += 1) {
+                int rootMove =
+                    i < result.size() ? result.get(i).move().code() : 0;
+                _searcher.setPosition(board);
+                int value = _searcher.searchRoot(depth, -INFTY, INFTY,
+                                                 rootMove,
+                                                 Arrays.copyOf(found, i));
+                if (_searcher.stopped() || _searcher.foundMove() == 0) {
+                    return result;
+                }
+                found[i] = _searcher.foundMove();
+                lines.add(new Variation(sense * value,
+                                        moves(_searcher
+                                              .principalVariation())));
+                decided &= isWin(value);
+            }
+            lines.sort((a, b) -> sense * (b.score() - a.score()));
+            result = lines;
+            Utils.debug(1, "analysis depth %d, %d ms: %s", depth,
+                        System.currentTimeMillis() - start, result);
+            if (decided) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /** Return the value of BOARD searched by findMove to DEPTH plies,
+     *  saving the move found, where SENSE is as for findMove.  Unless
+     *  DEPTH is small or PREVIOUS, the value of the previous iteration, is
+     *  a win, the search uses an aspiration window around PREVIOUS, which
+     *  is widened and the search repeated whenever the value falls
+     *  outside it. */
+    private int aspirationSearch(Board board, int depth, int sense,
+                                 int previous) {
+        _foundMove = null;
+        if (depth < ASPIRATION_DEPTH || isWin(previous)) {
+            return findMove(board, depth, true, sense, -INFTY, INFTY);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = previous - delta, beta = previous + delta;
+        while (true) {
+            int value = findMove(board, depth, true, sense, alpha, beta);
+            if (_stopped || value > alpha && value < beta) {
+                return value;
+            }
+            _aspirationFailures += 1;
+            _foundMove = null;
+            delta *= 4;
+            if (value <= alpha) {
+                alpha = delta > MAX_ASPIRATION_WINDOW ? -INFTY
+                    : previous - delta;
+            } else {
+                beta = delta > MAX_ASPIRATION_WINDOW ? INFTY
+                    : previous + delta;
+            }
+        }
+    }
+
+    /** Start a thread pondering after my move CHOICE, which has not yet
+     *  been made on the game board: it searches the position after the
+     *  reply predicted by my principal variation, if there is one, and
+     *  otherwise the position after CHOICE, until stopped. */
+    private void startPondering(Move choice) {
+        Board board = new Board(getBoard());
+        board.makeMove(choice);
+        if (board.gameOver()) {
+            return;
+        }
+        List<Move> line = _principalVariation;
+        _ponderReply = null;
+        if (line.size() > 1 && line.get(0) == choice
+            && board.isLegal(line.get(1))) {
+            board.makeMove(line.get(1));
+            if (board.gameOver()) {
+                board.retract();
+            } else {
+                _ponderReply = line.get(1);
+            }
+        }
+        long start = System.currentTimeMillis();
+        _ponderBoard = board;
+        _ponderStart = start;
+        _ponderMove = null;
+        beginSearch(board, start, Long.MAX_VALUE);
+        _ponderThread = new Thread(() -> {
+            _ponderMove = finishSearch(board, start, null);
+        }, "loa-ponder");
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+
+    /** Stop pondering, if I am, and return the move found if it was a
+     *  search of the current position (a ponder hit), or null otherwise.
+     *  After a hit, the search continues until it has had the time
+     *  allowed for a move (as TIMER allows, if it is not null), counting
+     *  from when pondering began, but without passing the hard limit for
+     *  the move, or to its full depth, if there is a depth limit. */
+    private Move finishPondering(TimeManager timer) {
+        if (_ponderThread == null) {
+            return null;
+        }
+        Board board = getBoard();
+        boolean hit = board.equals(_ponderBoard)
+            && board.movesMade() == _ponderBoard.movesMade();
+        if (hit) {
+            long now = System.currentTimeMillis();
+            long soft = timer == null ? _timeLimit
+                : timer.softDeadline() - now;
+            long hard = timer == null ? now + _timeLimit
+                : timer.hardDeadline();
+            long wait = Math.min(_ponderStart + soft, hard) - now;
+            try {
+                if (_depthLimit > 0) {
+                    _ponderThread.join();
+                } else if (wait > 0) {
+                    _ponderThread.join(wait);
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stopPondering();
+        Utils.debug(1, "ponder %s after %d ms", hit ? "hit" : "miss",
+                    System.currentTimeMillis() - _ponderStart);
+        _ponderHit = hit && _ponderMove != null;
+        return hit ? _ponderMove : null;
+    }
+
+    /** Return true iff I am pondering. */
+    boolean pondering() {
+        return _ponderThread != null;
+    }
+
+    /** Return the reply to my last move that my pondering assumes, or
+     *  null if it assumes none. */
+    Move ponderReply() {
+        return _ponderReply;
+    }
+
+    /** Return true iff my last move was the one found by pondering. */
+    boolean ponderHit() {
+        return _ponderHit;
+    }
+
+    /** Return true iff every move from BOARD but _bestMove, whose value
+     *  for the side to move was found to be SCORE by a search to DEPTH
+     *  plies, is worse by at least TimeManager.EASY_MARGIN, according to
+     *  a shallower search.  Its nodes are added to _easyNodes, so that
+     *  they are not counted as part of the next iteration. */
+    private boolean isEasy(Board board, int depth, int score) {
+        int bound = score - TimeManager.EASY_MARGIN;
+        if (isWin(score) || isWin(bound)) {
+            return false;
+        }
+        long nodes = _searcher.nodes();
+        _searcher.setPosition(board);
+        int value = _searcher.searchRoot(depth - 1, bound - 1, bound, 0,
+                                         new int[] { _bestMove.code() });
+        _easyNodes += _searcher.nodes() - nodes;
+        return !_searcher.stopped() && value < bound;
+    }
+
+    /** Stop the search begun by beginSearch as soon as possible, after
+     *  which it returns the best move of its deepest completed
+     *  iteration.  May be called from any thread. */
+    private void halt() {
+        _halted = true;
+        _searcher.stop();
+        SplitSearch splitter = _searchSplitter;
+        if (splitter != null) {
+            splitter.stop();
+        }
+    }
+
+    /** Return the statistics of my last search, or null if I have not
+     *  searched. */
+    SearchStats lastStats() {
+        return _stats;
+    }
+
+    /** Return the principal variation of the deepest iteration completed
+     *  by my last search: the expected line of play, beginning with the
+     *  move chosen. */
+    List<Move> principalVariation() {
+        return _principalVariation;
+    }
+
+    /** Return true iff searches are divided by a SplitSearch. */
+    private static boolean splitting() {
+        return _split && _threads > 1;
+    }
+
+    /** Return the SplitSearch shared by all MachinePlayers, creating it
+     *  anew if the number of threads has changed. */
+    private static synchronized SplitSearch splitter() {
+        if (_splitter == null || _splitter.threads() != _threads) {
+            if (_splitter != null) {
+                _splitter.shutdown();
+            }
+            _splitter = new SplitSearch(_threads, _table);
+        }
+        return _splitter;
+    }
+
+    /** If the solver is on, start a thread running it on BOARD until
+     *  DEADLINE.  Should it prove a win for the side to move, it stops
+     *  the main search (unless that is split) and the win is played. */
+    private void startSolver(Board board, long deadline) {
+        _solverThread = null;
+        if (!_solverOn) {
+            return;
+        }
+        if (_solver == null) {
+            _solver = new ProofSolver(SOLVER_TABLE_SIZE);
+        }
+        Piece side = board.turn();
+        _solver.reset();
+        _solverThread = new Thread(() -> {
+            if (_solver.solve(board, SOLVER_NODES, deadline) == side) {
+                _searcher.stop();
+            }
+        }, "loa-solver");
+        _solverThread.setDaemon(true);
+        _solverThread.start();
+    }
+
+    /** Stop and wait for the solver thread, if any, and if it has proven
+     *  a win for SIDE, the side to move, make its winning move
+     *  _bestMove. */
+    private void stopSolver(Piece side) {
+        if (_solverThread == null) {
+            return;
+        }
+        _solver.stop();
+        try {
+            _solverThread.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        Utils.debug(1, "solver: %d nodes%s", _solver.nodes(),
+                    _solver.bestMove() == 0 ? ""
+                    : ", proven " + Move.mv(_solver.bestMove()));
+        if (_solver.bestMove() != 0 && _solver.proven() == side) {
+            _bestMove = Move.mv(_solver.bestMove());
+        }
+    }
+
+    /** Start _searchThreads - 1 helper threads searching BOARD until
+     *  DEADLINE.  Helpers with odd numbers start one ply deeper than the
+     *  others, so that the threads' searches diverge. */
+    private void startHelpers(Board board, long deadline) {
+        int n = _searchThreads - 1;
+        if (_helpers.length < n) {
+            Searcher[] helpers = Arrays.copyOf(_helpers, n);
+            for (int i = _helpers.length; i < n; i += 1) {
+                helpers[i] = new Searcher(_table);
+            }
+            _helpers = helpers;
+        }
+        _helperThreads = new Thread[n];
+        for (int i = 0; i < n; i += 1) {
+            Searcher helper = _helpers[i];
+            int firstDepth = 1 + (i + 1) % 2;
+            helper.setPosition(board);
+            helper.setDeadline(deadline);
+            helper.newSearch();
+            _helperThreads[i] =
+                new Thread(() -> helper.iterate(firstDepth, MAX_DEPTH),
+                           "loa-search-" + (i + 1));
+            _helperThreads[i].setDaemon(true);
+            _helperThreads[i].start();
         }
-        return _foundMove;
+    }
+
+    /** Stop and wait for the helper threads started by startHelpers,
+     *  report the nodes per second of each thread since START, and
+     *  return the number of nodes visited by all threads, including
+     *  mine. */
+    private long stopHelpers(long start) {
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        long total = _searcher.nodes();
+        Utils.debug(1, "thread 0: %d nodes/s",
+                    _searcher.nodes() * 1000 / millis);
+        for (int i = 0; i < _helperThreads.length; i += 1) {
+            _helpers[i].stop();
+            try {
+                _helperThreads[i].join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            total += _helpers[i].nodes();
+            Utils.debug(1, "thread %d: %d nodes/s", i + 1,
+                        _helpers[i].nodes() * 1000 / millis);
+        }
+        if (_helperThreads.length > 0) {
+            Utils.debug(1, "%d threads: %d nodes/s, %.2fx the nodes of "
+                        + "thread 0",
+                        _searchThreads, total * 1000 / millis,
+                        (double) total / Math.max(1, _searcher.nodes()));
+        }
+        return total;
     }
 
     /** Find a move from position BOARD and return its value, recording
@@ -73,74 +655,63 @@ class MachinePlayer extends Player {
      *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
      *  DEPTH levels.  Searching at level 0 simply returns a static estimate
      *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
+     *  on BOARD, does not set _foundMove.  SENSE must be 1 if white is to
+     *  move on BOARD and -1 if black is.  The search itself is a negamax
+     *  search made in place on my Searcher's working board, or in split
+     *  mode a parallel search by the SplitSearch; the best move of the
+     *  previous iteration, if any, is tried first.  Sets _stopped iff the
+     *  search ran out of time, and _nodes to the nodes visited in the
+     *  current search so far (by my Searcher, less those of easy-move
+     *  checks, or by the SplitSearch). */
     private int findMove(Board board, int depth, boolean saveMove,
                          int sense, int alpha, int beta) {
-        if (depth == 0 || board.gameOver()) {
-            return heuristic(board);
-        }
-        if (sense == 1) {
-            int maxBest = -INFTY;
-            List<Move> allMove = board.legalMoves();
-            for (int i = 0; i < allMove.size(); i++) {
-                Move mv = allMove.get(i);
-                Board cp = new Board();
-                cp.copyFrom(board);
-                cp.makeMove(mv);
-                int eval = findMove(cp, depth - 1, false,
-                        -1, alpha, beta);
-                maxBest = Math.max(maxBest, eval);
-                if (saveMove && eval == maxBest) {
-                    _foundMove = mv;
-                }
-                alpha = Math.max(alpha, eval);
-                if (beta <= alpha) {
-                    break;
-                }
-            }
-            return maxBest;
+        assert sense == (board.turn() == WP ? 1 : -1);
+        int rootMove = _bestMove == null ? 0 : _bestMove.code();
+        int lo = sense == 1 ? alpha : -beta, hi = sense == 1 ? beta : -alpha;
+        int value, move;
+        SplitSearch splitter = _searchSplitter;
+        if (splitter != null) {
+            value = splitter.searchRoot(board, depth, lo, hi, rootMove);
+            move = splitter.foundMove();
+            _stopped = splitter.stopped();
+            _nodes = splitter.nodes();
         } else {
-            int minBest = INFTY;
-            List<Move> allMove = board.legalMoves();
-            for (int i = 0; i < allMove.size(); i++) {
-                Move mv = allMove.get(i);
-                Board cp = new Board();
-                cp.copyFrom(board);
-                cp.makeMove(mv);
-                int eval = findMove(cp, depth - 1, false,
-                        1, alpha, beta);
-                minBest = Math.min(minBest, eval);
-                if (saveMove && eval == minBest) {
-                    _foundMove = mv;
-                }
-                beta = Math.min(beta, eval);
-                if (beta <= alpha) {
-                    break;
-                }
-            }
-            return minBest;
+            _searcher.setPosition(board);
+            value = _searcher.searchRoot(depth, lo, hi, rootMove);
+            move = _searcher.foundMove();
+            _stopped = _searcher.stopped();
+            _nodes = _searcher.nodes() - _easyNodes;
+        }
+        if (saveMove && depth > 0 && move != 0) {
+            _foundMove = Move.mv(move);
+            _foundLine = moves(splitter != null ? new int[] { move }
+                               : _searcher.principalVariation());
         }
+        return sense * value;
     }
 
-    /** Return a search depth for the current position. */
-    int chooseDepth() {
-        return 2;
+    /** Return the Moves denoted by the Move codes in CODES. */
+    private static List<Move> moves(int[] codes) {
+        List<Move> result = new ArrayList<>();
+        for (int code : codes) {
+            result.add(Move.mv(code));
+        }
+        return result;
     }
 
-
     /** Evaluate the score of a current board state.
      * Higher score favors white piece.
      * @param b current board.
      * @return Score of the board.
      */
-    private int heuristic(Board b) {
+    static int heuristic(Board b) {
         if (b.winner() == EMP) {
             return 0;
         }
-        if (b.getRegionSizes(WP).size() == 1) {
+        if (b.piecesContiguous(WP)) {
             return 1000;
         }
-        if (b.getRegionSizes(BP).size() == 1) {
+        if (b.piecesContiguous(BP)) {
             int c = -1 * 1000;
             return c;
         }
@@ -152,19 +723,174 @@ class MachinePlayer extends Player {
         if (blockBlackMv > blockWhiteMv) {
             score += BONUS1;
         }
-        if ((numBlack - b.getRegionSizes(BP).get(0))
-            > (b.getRegionSizes(WP).get(0) - numWhite)) {
+        if ((numBlack - b.largestRegion(BP))
+            > (b.largestRegion(WP) - numWhite)) {
             int d = 100;
             score += d;
         }
-        if (b.getRegionSizes(BP).size() > b.getRegionSizes(WP).size()) {
+        if (b.numRegions(BP) > b.numRegions(WP)) {
             score += BONUS2;
         }
+        if (b.euler(BP) > b.euler(WP)) {
+            score += EULER_BONUS;
+        }
+        score += CONCENTRATION_BONUS
+            * Integer.signum(b.concentration(BP) - b.concentration(WP));
+        score += CENTRALIZATION_BONUS
+            * Integer.signum(b.centralization(WP) - b.centralization(BP));
         return score;
     }
 
+    /** One line of play found by analyze: a move, its value and its
+     *  principal variation. */
+    static final class Variation {
+
+        /** A line with value SCORE (positive favoring white) and principal
+         *  variation PV, whose first move is the move analyzed. */
+        Variation(int score, List<Move> pv) {
+            _score = score;
+            _pv = pv;
+        }
+
+        /** Return my move. */
+        Move move() {
+            return _pv.get(0);
+        }
+
+        /** Return my value, positive favoring white. */
+        int score() {
+            return _score;
+        }
+
+        /** Return my principal variation, beginning with move(). */
+        List<Move> pv() {
+            return _pv;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%s (%d):", move(), _score));
+            for (Move m : _pv) {
+                out.append(" ").append(m);
+            }
+            return out.toString();
+        }
+
+        /** My value. */
+        private final int _score;
+        /** My principal variation. */
+        private final List<Move> _pv;
+    }
 
     /** Used to convey moves discovered by findMove. */
     private Move _foundMove;
 
+    /** Best move of the deepest completed iteration of the current
+     *  search. */
+    private Move _bestMove;
+
+    /** My proof solver, or null if not yet needed. */
+    private ProofSolver _solver;
+
+    /** Thread running _solver in the current search, or null. */
+    private Thread _solverThread;
+
+    /** The principal variation that accompanies _foundMove. */
+    private List<Move> _foundLine;
+
+    /** The principal variation of the deepest completed iteration. */
+    private List<Move> _principalVariation =
+        new ArrayList<>();
+
+    /** Number of aspiration windows in the current search that the value
+     *  fell outside. */
+    private int _aspirationFailures;
+
+    /** My game clock, or null if I have not yet needed one. */
+    private TimeManager _timer;
+
+    /** Statistics of my current or last search. */
+    private SearchStats _stats;
+
+    /** Number of threads of the current or last search. */
+    private int _searchThreads = 1;
+
+    /** The SplitSearch dividing the current or last search, or null if
+     *  it was not split. */
+    private volatile SplitSearch _searchSplitter;
+
+    /** True iff the current search has been halted. */
+    private volatile boolean _halted;
+
+    /** Thread pondering on my opponent's time, or null. */
+    private Thread _ponderThread;
+
+    /** The position being pondered. */
+    private Board _ponderBoard;
+
+    /** Time at which pondering began. */
+    private long _ponderStart;
+
+    /** The move found by pondering, once the ponder thread is done. */
+    private Move _ponderMove;
+
+    /** The reply that pondering assumes, or null if none. */
+    private Move _ponderReply;
+
+    /** True iff my last move was the one found by pondering. */
+    private boolean _ponderHit;
+
+    /** True iff the last findMove ran out of time. */
+    private boolean _stopped;
+
+    /** Number of nodes visited in the current search, as of the last
+     *  findMove. */
+    private long _nodes;
+
+    /** Number of nodes visited by my Searcher in the current search's
+     *  easy-move checks (see isEasy). */
+    private long _easyNodes;
+
+    /** My searcher, which holds my working board and search state. */
+    private final Searcher _searcher = new Searcher(_table);
+
+    /** Searchers of my helper threads. */
+    private Searcher[] _helpers = new Searcher[0];
+
+    /** Helper threads of the current search. */
+    private Thread[] _helperThreads = new Thread[0];
+
+    /** Time allowed for each move, in milliseconds. */
+    private static long _timeLimit = DEFAULT_TIME_LIMIT;
+
+    /** Total time of each MachinePlayer's clock, or 0 if each move is
+     *  allowed _timeLimit instead, and the clock's increment. */
+    private static long _clockTotal, _clockIncrement;
+
+    /** Number of threads searching each move. */
+    private static int _threads = 1;
+
+    /** True iff MachinePlayers ponder. */
+    private static boolean _ponder;
+
+    /** True iff a proof solver runs alongside each search. */
+    private static boolean _solverOn;
+
+    /** True iff the threads split the tree rather than acting as lazy
+     *  SMP helpers. */
+    private static boolean _split;
+
+    /** Fixed depth of each search, or 0 to search by time. */
+    private static int _depthLimit;
+
+    /** The parallel searcher used in split mode, or null if not yet
+     *  needed. */
+    private static SplitSearch _splitter;
+
+    /** The transposition table shared by all MachinePlayers, so that it
+     *  persists from one move to the next. */
+    private static final TranspositionTable _table =
+        new TranspositionTable(DEFAULT_TABLE_SIZE);
+
 }
@@ -0,0 +1,138 @@
+package loa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of the MachinePlayer class. */
+public class MachinePlayerTest {
+
+    /** Depth of the searches in these tests. */
+    private static final int DEPTH = 3;
+
+    /** Time allowed for a move, and between changes of settings, in
+     *  milliseconds. */
+    private static final long PAUSE = 100;
+
+    /** A Reporter that reports nothing. */
+    private static class QuietReporter implements Reporter {
+        @Override
+        public void reportError(String format, Object... args) {
+        }
+
+        @Override
+        public void reportNote(String format, Object... args) {
+        }
+
+        @Override
+        public void reportMove(Move move) {
+        }
+    }
+
+    /** Return a new Game whose players are both manual, against which a
+     *  MachinePlayer will ponder. */
+    static Game game() {
+        return new Game(new NullView(), null, new QuietReporter(),
+                        new HumanPlayer(), new HumanPlayer(), false);
+    }
+
+    /** Have a MachinePlayer for black in a new game move, reply to its
+     *  move with the reply that it predicts iff PREDICTED, and check that
+     *  its next move is a ponder hit iff PREDICTED. */
+    private static void checkPonder(boolean predicted) {
+        Game game = game();
+        Board board = game.getBoard();
+        MachinePlayer player = new MachinePlayer(BP, game);
+        board.makeMove(Move.mv(player.getMove()));
+        assertTrue(player.pondering());
+        Move reply = player.ponderReply();
+        assertNotNull(reply);
+        if (!predicted) {
+            for (Move mv : board.legalMoves()) {
+                if (mv != reply) {
+                    reply = mv;
+                    break;
+                }
+            }
+        }
+        board.makeMove(reply);
+        Move second = Move.mv(player.getMove());
+        assertEquals(predicted, player.ponderHit());
+        assertTrue(board.isLegal(second));
+        assertTrue(player.pondering());
+        player.stopPondering();
+        assertFalse(player.pondering());
+    }
+
+    /** Test that a MachinePlayer uses the move found by pondering when
+     *  its opponent replies as predicted, and searches afresh when not. */
+    @Test
+    public void testPonder() {
+        MachinePlayer.setTableSize(1);
+        MachinePlayer.setDepthLimit(DEPTH);
+        MachinePlayer.setPonder(true);
+        try {
+            checkPonder(true);
+            checkPonder(false);
+        } finally {
+            MachinePlayer.setPonder(false);
+            MachinePlayer.setDepthLimit(0);
+            MachinePlayer.setTableSize(MachinePlayer.DEFAULT_TABLE_SIZE);
+        }
+    }
+
+    /** Test that a clock is kept while its settings stay the same, and
+     *  replaced when they change. */
+    @Test
+    public void testClock() {
+        try {
+            MachinePlayer.setClock(0, 0);
+            assertNull(MachinePlayer.timer(null));
+            MachinePlayer.setClock(60000, 100);
+            TimeManager timer = MachinePlayer.timer(null);
+            assertEquals(60000, timer.total());
+            assertEquals(100, timer.increment());
+            assertSame(timer, MachinePlayer.timer(timer));
+            MachinePlayer.setClock(60000, 0);
+            assertTrue(timer != MachinePlayer.timer(timer));
+            MachinePlayer.setClock(0, 0);
+            assertNull(MachinePlayer.timer(timer));
+        } finally {
+            MachinePlayer.setClock(0, 0);
+        }
+    }
+
+    /** Test that a split search begun by pondering keeps the number of
+     *  threads it began with, though it changes while the search runs,
+     *  and finishes normally when stopped. */
+    @Test
+    public void testPonderKeepsSettings() throws InterruptedException {
+        MachinePlayer.setTableSize(1);
+        MachinePlayer.setTimeLimit(PAUSE);
+        MachinePlayer.setPonder(true);
+        MachinePlayer.setSplit(true);
+        MachinePlayer.setThreads(2);
+        try {
+            Game game = game();
+            MachinePlayer player = new MachinePlayer(BP, game);
+            game.getBoard().makeMove(Move.mv(player.getMove()));
+            assertTrue(player.pondering());
+            Thread.sleep(PAUSE);
+            MachinePlayer.setThreads(1);
+            Thread.sleep(PAUSE);
+            player.stopPondering();
+            assertFalse(player.pondering());
+            SearchStats stats = player.lastStats();
+            assertNotNull(stats.move());
+            assertFalse(stats.iterations().isEmpty());
+        } finally {
+            MachinePlayer.setThreads(1);
+            MachinePlayer.setSplit(false);
+            MachinePlayer.setPonder(false);
+            MachinePlayer.setTimeLimit(MachinePlayer.DEFAULT_TIME_LIMIT);
+            MachinePlayer.setTableSize(MachinePlayer.DEFAULT_TABLE_SIZE);
+        }
+    }
+}
@@ -36,7 +36,13 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --time=(\\d+){0,1} "
+                            + "--hash=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--split{0,1} --depth=(\\d+){0,1} "
+                            + "--mcts{0,1} --simulations=(\\d+){0,1} "
+                            + "--solver{0,1} --ponder{0,1} --stats={0,1} "
+                            + "--clock=(\\d+){0,1} --increment=(\\d+){0,1} "
+                            + "--=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -49,6 +55,48 @@ public class Main {
             setMessageLevel(options.getInt("--debug"));
         }
 
+        if (options.contains("--time")) {
+            MachinePlayer.setTimeLimit(options.getInt("--time"));
+        }
+
+        if (options.contains("--clock")) {
+            MachinePlayer.setClock(options.getInt("--clock"),
+                                   options.contains("--increment")
+                                   ? options.getInt("--increment") : 0);
+        }
+
+        if (options.contains("--hash")) {
+            MachinePlayer.setTableSize(options.getInt("--hash"));
+        }
+
+        if (options.contains("--threads")) {
+            MachinePlayer.setThreads(options.getInt("--threads"));
+        }
+
+        MachinePlayer.setSplit(options.contains("--split"));
+
+        MachinePlayer.setSolver(options.contains("--solver"));
+
+        MachinePlayer.setPonder(options.contains("--ponder"));
+
+        if (options.contains("--stats")) {
+            try {
+                FileOutputStream out =
+                    new FileOutputStream(options.getFirst("--stats"), true);
+                SearchStats.setLog(new PrintStream(out, true));
+            } catch (IOException excp) {
+                error(1, "Could not open statistics file");
+            }
+        }
+
+        if (options.contains("--depth")) {
+            MachinePlayer.setDepthLimit(options.getInt("--depth"));
+        }
+
+        if (options.contains("--simulations")) {
+            MCTSPlayer.setSimulations(options.getInt("--simulations"));
+        }
+
         List<String> files = options.get("--");
         if (!files.isEmpty()) {
             try {
@@ -118,8 +166,10 @@ public class Main {
             }
         }
 
-        return new Game(view, log, reporter, manualPlayer,
-                        new MachinePlayer(), options.contains("--strict"));
+        Player autoPlayer =
+            options.contains("--mcts") ? new MCTSPlayer() : new MachinePlayer();
+        return new Game(view, log, reporter, manualPlayer, autoPlayer,
+                        options.contains("--strict"));
     }
 
     /** Print brief description of the command-line format. */
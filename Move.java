@@ -34,6 +34,29 @@ final class Move {
         }
     }
 
+    /** Return the move whose int encoding is CODE, as returned by
+     *  code(). */
+    static Move mv(int code) {
+        return _moves[fromIndex(code)][toIndex(code)]
+            [(code & CAPTURE_FLAG) != 0 ? 1 : 0];
+    }
+
+    /** Return the int encoding of the move FROM-TO, which captures iff
+     *  CAPTURE, where FROM and TO are Square indices. */
+    static int code(int from, int to, boolean capture) {
+        return from | to << TO_SHIFT | (capture ? CAPTURE_FLAG : 0);
+    }
+
+    /** Return the index of the Square moved from in encoded move CODE. */
+    static int fromIndex(int code) {
+        return code & SQ_MASK;
+    }
+
+    /** Return the index of the Square moved to in encoded move CODE. */
+    static int toIndex(int code) {
+        return (code >>> TO_SHIFT) & SQ_MASK;
+    }
+
     /** Return a move denoted MOVE with isCapture() false. */
     static Move mv(String move) {
         return mv(move, false);
@@ -73,6 +96,13 @@ final class Move {
         return _captureMove;
     }
 
+    /** Return my int encoding, which packs my from and to Square indices
+     *  and CAPTURE_FLAG iff isCapture().  Codes are non-negative and fit
+     *  in CODE_BITS bits. */
+    int code() {
+        return code(_from.index(), _to.index(), _capture);
+    }
+
     /** Return the length of this move (number of squares moved). */
     int length() {
         return _from.distance(_to);
@@ -91,6 +121,15 @@ final class Move {
         _captureMove = _capture ? this : new Move(from, to, true);
     }
 
+    /** Mask of a square index in an encoded move. */
+    static final int SQ_MASK = 0x3f;
+    /** Position of the destination square index in an encoded move. */
+    static final int TO_SHIFT = 6;
+    /** Flag marking an encoded move as a capture. */
+    static final int CAPTURE_FLAG = 1 << 12;
+    /** Number of bits in an encoded move. */
+    static final int CODE_BITS = 13;
+
     /** Starting and destination Squares. */
     private final Square _from, _to;
     /** True iff this Move records a capture. */
@@ -0,0 +1,132 @@
+package loa;
+
+/** Orders the moves searched at each node of a Searcher's search, to
+ *  make alpha-beta cutoffs come as early as possible.  Moves are tried
+ *  in the order: the transposition-table (hash) move, captures, the two
+ *  killer moves for the ply (quiet moves that recently caused cutoffs at
+ *  the same depth), then the remaining quiet moves by their history
+ *  scores (the accumulated squared depths of the cutoffs each from-to
+ *  pair has caused).  Also keeps statistics on the cutoffs reported to
+ *  it.  A MoveOrderer belongs to a single Searcher.
+ */
+final class MoveOrderer {
+
+    /** Sort keys of the move classes, in decreasing priority.  History
+     *  scores are kept below KILLER2_SCORE. */
+    private static final int
+        HASH_SCORE = Integer.MAX_VALUE,
+        CAPTURE_SCORE = 1 << 30,
+        KILLER1_SCORE = (1 << 30) - 1,
+        KILLER2_SCORE = (1 << 30) - 2,
+        HISTORY_LIMIT = 1 << 28;
+
+    /** Number of move indices distinguished by the cutoff statistics. */
+    static final int CUTOFF_SLOTS = 8;
+
+    /** Sort the first N encoded moves in MOVES, which were generated at
+     *  PLY plies from the root, into search order, using SCORES (of the
+     *  same length) as scratch space.  HASHMOVE is the move from the
+     *  transposition table, or 0. */
+    void order(int[] moves, int[] scores, int n, int hashMove, int ply) {
+        int killer1 = _killers[ply][0], killer2 = _killers[ply][1];
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove) {
+                score = HASH_SCORE;
+            } else if ((move & Move.CAPTURE_FLAG) != 0) {
+                score = CAPTURE_SCORE;
+            } else if (move == killer1) {
+                score = KILLER1_SCORE;
+            } else if (move == killer2) {
+                score = KILLER2_SCORE;
+            } else {
+                score = _history[Move.fromIndex(move)][Move.toIndex(move)];
+            }
+            int j;
+            for (j = i; j > 0 && scores[j - 1] < score; j -= 1) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+            }
+            scores[j] = score;
+            moves[j] = move;
+        }
+    }
+
+    /** Record that MOVE, the INDEXth move (from 0) searched at a node PLY
+     *  plies from the root with remaining depth DEPTH, caused a beta
+     *  cutoff. */
+    void cutoff(int move, int index, int ply, int depth) {
+        _cutoffs[Math.min(index, CUTOFF_SLOTS - 1)] += 1;
+        if ((move & Move.CAPTURE_FLAG) != 0) {
+            return;
+        }
+        if (_killers[ply][0] != move) {
+            _killers[ply][1] = _killers[ply][0];
+            _killers[ply][0] = move;
+        }
+        int[] row = _history[Move.fromIndex(move)];
+        int to = Move.toIndex(move);
+        row[to] += depth * depth;
+        if (row[to] >= HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    /** Prepare for a new search: forget the killer moves, and decay the
+     *  history scores so that recent cutoffs count for more. */
+    void newSearch() {
+        for (int[] killers : _killers) {
+            killers[0] = killers[1] = 0;
+        }
+        ageHistory();
+    }
+
+    /** Reset the cutoff statistics. */
+    void clearStatistics() {
+        java.util.Arrays.fill(_cutoffs, 0);
+    }
+
+    /** Return the number of cutoffs caused by the INDEXth move searched
+     *  at a node (counting from 0), where the last index counts all
+     *  later moves as well. */
+    long cutoffs(int index) {
+        return _cutoffs[index];
+    }
+
+    /** Return the total number of cutoffs recorded. */
+    long totalCutoffs() {
+        long total = 0;
+        for (long c : _cutoffs) {
+            total += c;
+        }
+        return total;
+    }
+
+    /** Return the fraction of cutoffs caused by the first move searched,
+     *  a measure of the quality of the ordering. */
+    double firstMoveCutoffRate() {
+        long total = totalCutoffs();
+        return total == 0 ? 0.0 : (double) _cutoffs[0] / total;
+    }
+
+    /** Halve all history scores. */
+    private void ageHistory() {
+        for (int[] row : _history) {
+            for (int i = 0; i < row.length; i += 1) {
+                row[i] >>= 1;
+            }
+        }
+    }
+
+    /** Killer moves for each ply, most recent first. */
+    private final int[][] _killers = new int[Searcher.MAX_PLY][2];
+
+    /** History scores, indexed by from and to Square indices. */
+    private final int[][] _history =
+        new int[Square.NUM_SQUARES][Square.NUM_SQUARES];
+
+    /** Numbers of cutoffs, indexed by the position of the cutoff move in
+     *  the search order. */
+    private final long[] _cutoffs = new long[CUTOFF_SLOTS];
+}
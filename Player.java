@@ -37,6 +37,16 @@ public abstract class Player {
     /** Return true iff I am a manual (human or non-automated) player. */
     abstract boolean isManual();
 
+    /** Stop any thinking I am doing during my opponent's turn.  Players
+     *  that ponder override this. */
+    void stopPondering() {
+    }
+
+    /** Prepare to play a new game.  Players that keep state from move to
+     *  move, such as a game clock, override this. */
+    void newGame() {
+    }
+
     /** A factory method that returns a Player with my concrete type that
      *  plays the side indicated by PIECE in a game controlled by
      *  GAME.  This typically will call the constructor for the class
@@ -0,0 +1,294 @@
+package loa;
+
+import java.util.Arrays;
+
+import static loa.Piece.*;
+
+/** A solver that determines the outcome of a position under perfect play,
+ *  within limits on its nodes and time, by depth-first proof-number
+ *  search (df-pn, after Nagai).  A proof-number search expands the
+ *  position that most cheaply advances a proof or disproof, measuring
+ *  cost by the number of unsolved leaves that must be settled.  It finds
+ *  long forced wins that a fixed-depth search cannot see.
+ *
+ *  Each search tries to prove that one side, the attacker, wins; a draw
+ *  under the move limit counts as a failure.  solve uses two such
+ *  searches to tell wins, losses and draws apart.  Proof and disproof
+ *  numbers are kept in a hashed table of my own.  Positions are
+ *  distinguished by the number of moves made as well as by their
+ *  contents, since that determines how close the move limit is.  The
+ *  game graph is therefore acyclic.  While a node is being expanded, the
+ *  numbers of its children are also kept in arrays of their own, so that
+ *  a child whose entry is overwritten by a colliding position is not
+ *  searched over and over.
+ *
+ *  The numbers are kept in "negamax" form: for a node, phi is the proof
+ *  number for its side to move and delta the disproof number, so that a
+ *  node's phi is the least delta of its children and its delta the sum of
+ *  its children's phis.
+ */
+final class ProofSolver {
+
+    /** A proof or disproof number standing for infinity. */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /** Number of bytes in one table entry. */
+    private static final int ENTRY_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+    /** Multiplier that mixes the number of moves made into a key. */
+    private static final long MOVE_SALT = 0x9e3779b97f4a7c15L;
+
+    /** Key component distinguishing searches with white attacking. */
+    private static final long WHITE_ATTACKS = 0x5a17c0de5a17c0deL;
+
+    /** A solver with a table occupying about MEGABYTES megabytes. */
+    ProofSolver(int megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("table size must be positive");
+        }
+        int entries = (int) Math.min(1 << 28, Long.highestOneBit(
+            (long) megabytes * (1 << 20) / ENTRY_BYTES));
+        _keys = new long[entries];
+        _phi = new int[entries];
+        _delta = new int[entries];
+        _mask = entries - 1;
+    }
+
+    /** Determine the outcome of BOARD, visiting at most NODES nodes and
+     *  stopping at time DEADLINE (as by System.currentTimeMillis).  Return
+     *  the side proven to win, EMP if the position is proven a draw, or
+     *  null if it could not be solved.  When the side to move is proven
+     *  to win or draw, bestMove() is a move that does so.  A stop
+     *  requested since the last reset ends the solve at once.  The table
+     *  is emptied first, since its entries may have been made under
+     *  another move limit.  Clearing the keys alone empties it, as an
+     *  entry is used only when its key matches; walking the table so on
+     *  each solve is intended, and costs little beside the solve. */
+    Piece solve(Board board, long nodes, long deadline) {
+        _board = new Board(board);
+        _nodeLimit = nodes;
+        _deadline = deadline;
+        _nodes = 0;
+        _stopped = _stopRequested;
+        _bestMove = 0;
+        _proven = null;
+        Arrays.fill(_keys, 0);
+        _proven = solve();
+        return _proven;
+    }
+
+    /** Determine and return the outcome of my board, as for
+     *  solve(BOARD, NODES, DEADLINE). */
+    private Piece solve() {
+        Piece winner = _board.winner();
+        if (winner != null) {
+            return winner;
+        }
+        int depth = Math.max(1, _board.moveLimit() - _board.movesMade() + 1);
+        if (_moves.length < depth) {
+            _moves = new int[depth][Board.MAX_MOVES];
+            _childPhi = new int[depth][Board.MAX_MOVES];
+            _childDelta = new int[depth][Board.MAX_MOVES];
+        }
+        Piece side = _board.turn();
+        if (prove(side)) {
+            return side;
+        }
+        if (_stopped || _phi[index(key())] != INFINITY) {
+            return null;
+        }
+        if (prove(side.opposite())) {
+            return side.opposite();
+        }
+        if (_stopped || _phi[index(key())] != 0) {
+            return null;
+        }
+        return EMP;
+    }
+
+    /** Return a move (a Move code) by which the side to move achieves
+     *  the outcome proven by the last solve, or 0 if that outcome is a
+     *  loss or unknown. */
+    int bestMove() {
+        return _bestMove;
+    }
+
+    /** Return the outcome proven by the last solve, as returned by
+     *  solve, or null if it has not finished or proved nothing. */
+    Piece proven() {
+        return _proven;
+    }
+
+    /** Return the number of nodes visited by the last solve. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Clear any earlier request to stop.  To avoid losing a stop
+     *  requested while a thread is starting a solve, call this before
+     *  starting the thread. */
+    void reset() {
+        _stopRequested = false;
+    }
+
+    /** Stop the current solve as soon as possible, and any later one
+     *  before the next reset.  May be called from any thread. */
+    void stop() {
+        _stopRequested = true;
+    }
+
+    /** Search my board to prove that ATTACKER wins, and return true iff
+     *  this succeeds.  Otherwise, the root's phi in the table is
+     *  INFINITY if the side to move is proven to fail in its aim, and
+     *  otherwise the search was stopped. */
+    private boolean prove(Piece attacker) {
+        _attacker = attacker;
+        mid(0, INFINITY - 1, INFINITY - 1);
+        int root = index(key());
+        boolean stmAttacks = _board.turn() == attacker;
+        return !_stopped && _keys[root] == key()
+            && (stmAttacks ? _phi[root] == 0 : _phi[root] == INFINITY);
+    }
+
+    /** Expand my board, which is PLY plies from the root, until its phi
+     *  reaches THPHI or its delta reaches THDELTA, or the search is
+     *  stopped, record its numbers in the table, and return them, packed
+     *  as for child. */
+    private long mid(int ply, int thPhi, int thDelta) {
+        _nodes += 1;
+        if (_nodes >= _nodeLimit || _stopRequested
+            || (_nodes & 1023) == 0
+            && System.currentTimeMillis() >= _deadline) {
+            _stopped = true;
+        }
+        long key = key();
+        int[] moves = _moves[ply];
+        int[] phis = _childPhi[ply], deltas = _childDelta[ply];
+        int n = _board.legalMoves(moves);
+        for (int i = 0; i < n; i += 1) {
+            long entry = child(moves[i]);
+            phis[i] = (int) (entry >>> 32);
+            deltas[i] = (int) entry;
+        }
+        while (true) {
+            int phi, delta = 0, best = -1;
+            int bestDelta = INFINITY, secondDelta = INFINITY, bestPhi = 0;
+            for (int i = 0; i < n; i += 1) {
+                int childPhi = phis[i], childDelta = deltas[i];
+                delta = add(delta, childPhi);
+                if (childDelta < bestDelta) {
+                    secondDelta = bestDelta;
+                    bestDelta = childDelta;
+                    bestPhi = childPhi;
+                    best = i;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+            phi = bestDelta;
+            if (n == 0) {
+                phi = _board.turn() == _attacker ? INFINITY : 0;
+                delta = INFINITY - phi;
+            }
+            if (phi >= thPhi || delta >= thDelta || _stopped) {
+                store(key, phi, delta);
+                if (ply == 0 && phi == 0 && best >= 0) {
+                    _bestMove = moves[best];
+                }
+                return (long) phi << 32 | delta;
+            }
+            int childThPhi = add(thDelta - delta, bestPhi);
+            int childThDelta = Math.min(thPhi, add(secondDelta, 1));
+            _board.makeMove(moves[best]);
+            long entry = mid(ply + 1, childThPhi, childThDelta);
+            _board.retract();
+            phis[best] = (int) (entry >>> 32);
+            deltas[best] = (int) entry;
+        }
+    }
+
+    /** Return the phi and delta of the position reached by MOVE from my
+     *  board, packed as phi << 32 | delta.  Unsolved positions not in the
+     *  table count as 1 and 1; positions that end the game are solved
+     *  (and recorded) on the spot. */
+    private long child(int move) {
+        _board.makeMove(move);
+        long key = key();
+        int i = index(key);
+        int phi = 1, delta = 1;
+        if (_keys[i] == key) {
+            phi = _phi[i];
+            delta = _delta[i];
+        } else {
+            Piece winner = _board.winner();
+            if (winner != null) {
+                boolean attackerWins = winner == _attacker;
+                boolean stmAttacks = _board.turn() == _attacker;
+                phi = attackerWins == stmAttacks ? 0 : INFINITY;
+                delta = INFINITY - phi;
+                store(key, phi, delta);
+            }
+        }
+        _board.retract();
+        return (long) phi << 32 | delta;
+    }
+
+    /** Return the table key of my board's position in the current
+     *  search. */
+    private long key() {
+        return _board.key() ^ _board.movesMade() * MOVE_SALT
+            ^ (_attacker == WP ? WHITE_ATTACKS : 0);
+    }
+
+    /** Return the table index for KEY. */
+    private int index(long key) {
+        return (int) (key & _mask);
+    }
+
+    /** Record PHI and DELTA for the position with KEY. */
+    private void store(long key, int phi, int delta) {
+        int i = index(key);
+        _keys[i] = key;
+        _phi[i] = phi;
+        _delta[i] = delta;
+    }
+
+    /** Return A + B, where both are non-negative, or INFINITY if that
+     *  is larger. */
+    private static int add(int a, int b) {
+        return a >= INFINITY - b ? INFINITY : a + b;
+    }
+
+    /** Table keys, and proof and disproof numbers, by entry. */
+    private final long[] _keys;
+    /** Phi of each entry. */
+    private final int[] _phi;
+    /** Delta of each entry. */
+    private final int[] _delta;
+    /** Mask selecting an entry index from a key. */
+    private final int _mask;
+
+    /** The board on which I make and unmake moves. */
+    private Board _board;
+    /** Move buffers for each ply. */
+    private int[][] _moves = new int[0][];
+    /** Phi and delta of the children of the node being expanded at each
+     *  ply, in the order of its moves in _moves. */
+    private int[][] _childPhi = new int[0][], _childDelta = new int[0][];
+    /** The side whose win the current search tries to prove. */
+    private Piece _attacker;
+    /** A winning move at the root, or 0. */
+    private int _bestMove;
+    /** Limits of the current solve: nodes, and time. */
+    private long _nodeLimit, _deadline;
+    /** Nodes visited by the current solve. */
+    private long _nodes;
+    /** The outcome of the last solve.  Volatile so that other threads
+     *  may read it once the solve is done. */
+    private volatile Piece _proven;
+    /** True iff the current solve has been stopped, by a limit or by
+     *  request. */
+    private boolean _stopped;
+    /** True iff stop has been called since the last reset. */
+    private volatile boolean _stopRequested;
+}
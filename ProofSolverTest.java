@@ -0,0 +1,128 @@
+package loa;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of the ProofSolver class. */
+public class ProofSolverTest {
+
+    /** Number of random positions compared with minimax. */
+    private static final int POSITIONS = 50;
+
+    /** Return the outcome of BOARD under perfect play, found by full
+     *  minimax: 1 if the side to move wins, -1 if it loses, and 0 if the
+     *  game is drawn (at the move limit, or because the side to move has
+     *  no moves). */
+    private static int minimax(Board board) {
+        Piece winner = board.winner();
+        if (winner != null) {
+            return winner == EMP ? 0 : winner == board.turn() ? 1 : -1;
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.legalMoves(moves);
+        int best = n == 0 ? 0 : -1;
+        for (int i = 0; i < n && best < 1; i += 1) {
+            board.makeMove(moves[i]);
+            best = Math.max(best, -minimax(board));
+            board.retract();
+        }
+        return best;
+    }
+
+    /** Return the outcome RESULT of a solve of BOARD in the form returned
+     *  by minimax. */
+    private static int outcome(Board board, Piece result) {
+        return result == EMP ? 0 : result == board.turn() ? 1 : -1;
+    }
+
+    /** Return a random position, chosen with RANDOM, with at most three
+     *  pieces of each side and a move limit of one or two moves each,
+     *  whose game is not yet over. */
+    private static Board randomPosition(Random random) {
+        while (true) {
+            Piece[][] contents = new Piece[Square.BOARD_SIZE][];
+            for (int r = 0; r < contents.length; r += 1) {
+                contents[r] = new Piece[Square.BOARD_SIZE];
+                Arrays.fill(contents[r], EMP);
+            }
+            for (int k = 0; k < 3; k += 1) {
+                for (Piece side : new Piece[] { BP, WP }) {
+                    contents[random.nextInt(Square.BOARD_SIZE)]
+                        [random.nextInt(Square.BOARD_SIZE)] = side;
+                }
+            }
+            Board board =
+                new Board(contents, random.nextBoolean() ? BP : WP);
+            board.setMoveLimit(1 + random.nextInt(2));
+            if (board.winner() == null) {
+                return board;
+            }
+        }
+    }
+
+    /** Test that solve agrees with minimax on small positions near the
+     *  move limit, including wins, losses and draws, and that bestMove
+     *  achieves the outcome found. */
+    @Test
+    public void testAgreesWithMinimax() {
+        Random random = new Random(1);
+        ProofSolver solver = new ProofSolver(1);
+        int[] counts = new int[3];
+        for (int t = 0; t < POSITIONS; t += 1) {
+            Board board = randomPosition(random);
+            int expected = minimax(new Board(board));
+            Piece result = solver.solve(board, Long.MAX_VALUE,
+                                        Long.MAX_VALUE);
+            assertNotNull(result);
+            assertEquals(result, solver.proven());
+            assertEquals(expected, outcome(board, result));
+            counts[expected + 1] += 1;
+            if (expected == -1) {
+                assertEquals(0, solver.bestMove());
+            } else if (board.legalMoves().size() > 0) {
+                assertNotEquals(0, solver.bestMove());
+                Board next = new Board(board);
+                next.makeMove(solver.bestMove());
+                assertEquals(-expected, minimax(next));
+            }
+        }
+        assertTrue(counts[0] > 0 && counts[1] > 0 && counts[2] > 0);
+    }
+
+    /** Test that a position too large to solve is left unsolved when the
+     *  node limit or the deadline is reached. */
+    @Test
+    public void testLimits() {
+        ProofSolver solver = new ProofSolver(1);
+        Board board = new Board();
+        assertNull(solver.solve(board, 100, Long.MAX_VALUE));
+        assertNull(solver.proven());
+        assertEquals(100, solver.nodes());
+        assertEquals(0, solver.bestMove());
+        assertNull(solver.solve(board, Long.MAX_VALUE, 0));
+        assertNull(solver.proven());
+        assertEquals(1024, solver.nodes());
+    }
+
+    /** Test that a stop requested before a solve begins ends it at once,
+     *  and lasts until reset. */
+    @Test
+    public void testStopBeforeSolve() {
+        ProofSolver solver = new ProofSolver(1);
+        Board board = new Board();
+        solver.stop();
+        assertNull(solver.solve(board, Long.MAX_VALUE, Long.MAX_VALUE));
+        assertEquals(1, solver.nodes());
+        assertNull(solver.solve(board, Long.MAX_VALUE, Long.MAX_VALUE));
+        assertEquals(1, solver.nodes());
+        solver.reset();
+        assertNull(solver.solve(board, 100, Long.MAX_VALUE));
+        assertEquals(100, solver.nodes());
+    }
+}
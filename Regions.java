@@ -0,0 +1,122 @@
+package loa;
+
+import static loa.Piece.*;
+
+/** The connected regions of each side's pieces, kept as bitboards.  A
+ *  move changes regions only around its two squares: removing a piece
+ *  can split the one region that held it, which is then refilled on
+ *  its own, and adding a piece merges it with the regions next to it.
+ *  So a move or retraction touches at most three regions rather than
+ *  refilling all of both sides' pieces.
+ */
+final class Regions implements EvalTerm {
+
+    /** Return the number of connected regions of SIDE's pieces. */
+    int count(Piece side) {
+        return _count[side.ordinal()];
+    }
+
+    /** Return the size of the largest connected region of SIDE's
+     *  pieces, or 0 if SIDE has no pieces. */
+    int largest(Piece side) {
+        int k = side.ordinal(), largest = 0;
+        for (int i = 0; i < _count[k]; i += 1) {
+            largest = Math.max(largest, Long.bitCount(_regions[k][i]));
+        }
+        return largest;
+    }
+
+    /** Store the sizes of the regions of SIDE's pieces in decreasing
+     *  order in SIZES, starting at index 0, and return their number. */
+    int sizes(Piece side, int[] sizes) {
+        int k = side.ordinal(), n = _count[k];
+        for (int j = 0; j < n; j += 1) {
+            int size = Long.bitCount(_regions[k][j]);
+            int i;
+            for (i = j; i > 0 && sizes[i - 1] < size; i -= 1) {
+                sizes[i] = sizes[i - 1];
+            }
+            sizes[i] = size;
+        }
+        return n;
+    }
+
+    @Override
+    public void reset(Board board) {
+        _count[0] = _count[1] = 0;
+        split(BP.ordinal(), board.pieces(BP));
+        split(WP.ordinal(), board.pieces(WP));
+    }
+
+    @Override
+    public void moved(Board board, Square from, Square to,
+                      boolean capture) {
+        int k = board.get(to).ordinal();
+        remove(k, from);
+        add(k, to);
+        if (capture) {
+            remove(1 - k, to);
+        }
+    }
+
+    @Override
+    public void retracted(Board board, Square from, Square to,
+                          boolean capture) {
+        int k = board.get(from).ordinal();
+        remove(k, to);
+        add(k, from);
+        if (capture) {
+            add(1 - k, to);
+        }
+    }
+
+    /** Remove SQ from the region of the side with ordinal K that holds
+     *  it, splitting the region if need be. */
+    private void remove(int k, Square sq) {
+        long[] regions = _regions[k];
+        long bit = sq.bit();
+        int i;
+        for (i = 0; (regions[i] & bit) == 0; i += 1) {
+            /* Find the region holding SQ. */
+        }
+        long rest = regions[i] & ~bit;
+        _count[k] -= 1;
+        regions[i] = regions[_count[k]];
+        split(k, rest);
+    }
+
+    /** Add SQ to the regions of the side with ordinal K, merging it
+     *  with those adjacent to it. */
+    private void add(int k, Square sq) {
+        long[] regions = _regions[k];
+        long region = sq.bit(), near = Board.neighborhood(region);
+        for (int i = 0; i < _count[k]; ) {
+            if ((regions[i] & near) != 0) {
+                region |= regions[i];
+                _count[k] -= 1;
+                regions[i] = regions[_count[k]];
+            } else {
+                i += 1;
+            }
+        }
+        regions[_count[k]] = region;
+        _count[k] += 1;
+    }
+
+    /** Add the connected regions of BITS to those of the side with
+     *  ordinal K. */
+    private void split(int k, long bits) {
+        while (bits != 0) {
+            long region = Board.contiguous(bits & -bits, bits);
+            bits &= ~region;
+            _regions[k][_count[k]] = region;
+            _count[k] += 1;
+        }
+    }
+
+    /** Number of regions of each side, indexed by color ordinal. */
+    private final int[] _count = new int[2];
+    /** The regions of each side, indexed by color ordinal; the first
+     *  _count[k] entries of _regions[k] are valid. */
+    private final long[][] _regions = new long[2][Square.NUM_SQUARES];
+}
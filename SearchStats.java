@@ -0,0 +1,341 @@
+package loa;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Statistics of one search by a MachinePlayer: its node counts and
+ *  speed, the depth, score, time and principal variation of each
+ *  completed iteration, its effective branching factor, its use of the
+ *  transposition table and evaluation cache, and how its beta cutoffs
+ *  were spread over the positions of the cutoff moves in the search
+ *  order.  The search fills
+ *  in a SearchStats only between iterations and at the end, from
+ *  counters that its Searcher, MoveOrderer and TranspositionTable keep
+ *  anyway, so gathering statistics costs next to nothing.
+ *
+ *  A SearchStats reports itself through Utils.debug and, if a log has
+ *  been set with setLog, as one line of JSON in that log.  The
+ *  quiescence, evaluation-cache and cutoff counts come from the main
+ *  thread's Searcher, so they are zero in split mode, where the worker
+ *  threads' Searchers do all the searching.
+ */
+final class SearchStats {
+
+    /** Debug level at which a summary of each search and a line per
+     *  iteration are printed. */
+    static final int SUMMARY_LEVEL = 1;
+    /** Debug level at which the distribution of cutoffs is printed. */
+    static final int DETAIL_LEVEL = 2;
+
+    /** Statistics of a search of BOARD begun at time START (as by
+     *  System.currentTimeMillis), using TABLE. */
+    SearchStats(Board board, long start, TranspositionTable table) {
+        _side = board.turn();
+        _movesMade = board.movesMade();
+        _start = _end = start;
+        _table = table;
+        _probes0 = table.probes();
+        _hits0 = table.hits();
+    }
+
+    /** Record the completion of an iteration to DEPTH plies with value
+     *  SCORE (positive favoring white) and principal variation PV (which
+     *  may be empty), when the main thread has visited NODES nodes in
+     *  all. */
+    void iteration(int depth, int score, long nodes, List<Move> pv) {
+        Iteration it =
+            new Iteration(depth, score, nodes - _mainNodes,
+                          System.currentTimeMillis() - _start, pv);
+        _mainNodes = nodes;
+        _iterations.add(it);
+        Utils.debug(SUMMARY_LEVEL,
+                    "depth %d: %s (%d), %d nodes, %d ms, ebf %.2f, pv %s",
+                    depth, pv.isEmpty() ? "-" : pv.get(0), score,
+                    it.nodes(), it.millis(),
+                    branchingFactor(_iterations.size() - 1), pv);
+    }
+
+    /** Record the end of the search, which chose MOVE after visiting
+     *  NODES nodes in THREADS threads, with SEARCHER as the main
+     *  thread's Searcher. */
+    void finish(Move move, long nodes, int threads, Searcher searcher) {
+        _end = System.currentTimeMillis();
+        _move = move;
+        _nodes = nodes;
+        _threads = threads;
+        _quiescenceNodes = searcher.quiescenceNodes();
+        _probes = _table.probes() - _probes0;
+        _hits = _table.hits() - _hits0;
+        _fill = _table.fillPermille();
+        _evalProbes = searcher.evalCache().probes();
+        _evalHits = searcher.evalCache().hits();
+        for (int i = 0; i < _cutoffs.length; i += 1) {
+            _cutoffs[i] = searcher.orderer().cutoffs(i);
+        }
+    }
+
+    /** Return my completed iterations, shallowest first. */
+    List<Iteration> iterations() {
+        return _iterations;
+    }
+
+    /** Return the move chosen, or null if the search has not finished. */
+    Move move() {
+        return _move;
+    }
+
+    /** Return the number of nodes visited by all threads. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of quiescence nodes visited by the main
+     *  thread. */
+    long quiescenceNodes() {
+        return _quiescenceNodes;
+    }
+
+    /** Return the duration of the search in milliseconds. */
+    long millis() {
+        return _end - _start;
+    }
+
+    /** Return the number of nodes visited per second by all threads. */
+    long nodesPerSecond() {
+        return _nodes * 1000 / Math.max(1, millis());
+    }
+
+    /** Return the effective branching factor of the search: the factor
+     *  by which the nodes of each iteration grew over those of the one
+     *  before, on average (geometrically) over all iterations after the
+     *  first, or 0 if there were fewer than two. */
+    double branchingFactor() {
+        int n = _iterations.size();
+        if (n < 2) {
+            return 0.0;
+        }
+        double first = Math.max(1, _iterations.get(0).nodes()),
+            last = Math.max(1, _iterations.get(n - 1).nodes());
+        return Math.pow(last / first, 1.0 / (n - 1));
+    }
+
+    /** Return the ratio of the nodes of iteration K (numbering from 0)
+     *  to those of the iteration before it, or 0 if K is 0. */
+    double branchingFactor(int k) {
+        if (k == 0) {
+            return 0.0;
+        }
+        return (double) _iterations.get(k).nodes()
+            / Math.max(1, _iterations.get(k - 1).nodes());
+    }
+
+    /** Return the number of transposition-table probes per node. */
+    double probeRate() {
+        return (double) _probes / Math.max(1, _nodes);
+    }
+
+    /** Return the fraction of transposition-table probes that found an
+     *  entry. */
+    double hitRate() {
+        return _probes == 0 ? 0.0 : (double) _hits / _probes;
+    }
+
+    /** Return the number of probes of the main thread's evaluation
+     *  cache. */
+    long evalProbes() {
+        return _evalProbes;
+    }
+
+    /** Return the fraction of the main thread's evaluation-cache probes
+     *  that found an entry. */
+    double evalHitRate() {
+        return _evalProbes == 0 ? 0.0 : (double) _evalHits / _evalProbes;
+    }
+
+    /** Return the number of transposition-table entries, per thousand,
+     *  filled by the search, as estimated at its end. */
+    int fillPermille() {
+        return _fill;
+    }
+
+    /** Return the number of beta cutoffs caused by the INDEXth move
+     *  searched at a node (the last index counting all later moves). */
+    long cutoffs(int index) {
+        return _cutoffs[index];
+    }
+
+    /** Return the total number of beta cutoffs. */
+    long totalCutoffs() {
+        long total = 0;
+        for (long c : _cutoffs) {
+            total += c;
+        }
+        return total;
+    }
+
+    /** Print a summary of the finished search through Utils.debug, and
+     *  write it to the log, if there is one. */
+    void report() {
+        Utils.debug(SUMMARY_LEVEL,
+                    "search: %s, %d nodes (%d quiescence), %d ms, "
+                    + "%d nodes/s, %d threads, ebf %.2f",
+                    _move, _nodes, _quiescenceNodes, millis(),
+                    nodesPerSecond(), _threads, branchingFactor());
+        Utils.debug(SUMMARY_LEVEL,
+                    "table: %d MB, %d permille full, %.2f probes/node, "
+                    + "%.1f%% hits",
+                    _table.megabytes(), _fill, probeRate(), 100 * hitRate());
+        Utils.debug(SUMMARY_LEVEL, "eval cache: %d probes, %.1f%% hits",
+                    _evalProbes, 100 * evalHitRate());
+        long total = totalCutoffs();
+        StringBuilder dist = new StringBuilder();
+        for (long c : _cutoffs) {
+            dist.append(String.format(" %.1f%%",
+                                      100.0 * c / Math.max(1, total)));
+        }
+        Utils.debug(SUMMARY_LEVEL, "cutoffs: %d, %.1f%% on first move",
+                    total, 100.0 * _cutoffs[0] / Math.max(1, total));
+        Utils.debug(DETAIL_LEVEL, "cutoffs by move index:%s", dist);
+        PrintStream log = _log;
+        if (log != null) {
+            log.println(toJson());
+        }
+    }
+
+    /** Return my statistics as a JSON object on one line. */
+    String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT,
+                                 "{\"side\":\"%s\",\"movesMade\":%d,"
+                                 + "\"move\":%s,\"nodes\":%d,"
+                                 + "\"quiescenceNodes\":%d,\"millis\":%d,"
+                                 + "\"nps\":%d,\"threads\":%d,"
+                                 + "\"ebf\":%.3f,\"ttProbes\":%d,"
+                                 + "\"ttHits\":%d,\"ttFillPermille\":%d,"
+                                 + "\"evalProbes\":%d,\"evalHits\":%d,"
+                                 + "\"cutoffs\":[",
+                                 _side.fullName(), _movesMade,
+                                 _move == null ? "null"
+                                 : "\"" + _move + "\"",
+                                 _nodes, _quiescenceNodes, millis(),
+                                 nodesPerSecond(), _threads,
+                                 branchingFactor(), _probes, _hits,
+                                 _fill, _evalProbes, _evalHits));
+        for (int i = 0; i < _cutoffs.length; i += 1) {
+            out.append(i == 0 ? "" : ",").append(_cutoffs[i]);
+        }
+        out.append("],\"iterations\":[");
+        for (int k = 0; k < _iterations.size(); k += 1) {
+            Iteration it = _iterations.get(k);
+            out.append(k == 0 ? "" : ",");
+            out.append(String.format(Locale.ROOT,
+                                     "{\"depth\":%d,\"score\":%d,"
+                                     + "\"nodes\":%d,\"millis\":%d,"
+                                     + "\"ebf\":%.3f,\"pv\":[",
+                                     it.depth(), it.score(), it.nodes(),
+                                     it.millis(), branchingFactor(k)));
+            for (int i = 0; i < it.pv().size(); i += 1) {
+                out.append(i == 0 ? "\"" : ",\"").append(it.pv().get(i))
+                    .append("\"");
+            }
+            out.append("]}");
+        }
+        out.append("]}");
+        return out.toString();
+    }
+
+    /** Write the JSON form of each finished search's statistics as a
+     *  line of LOG, or nowhere if LOG is null. */
+    static void setLog(PrintStream log) {
+        _log = log;
+    }
+
+    /** The statistics of one completed iteration. */
+    static final class Iteration {
+
+        /** An iteration to DEPTH plies with value SCORE that visited
+         *  NODES nodes, finishing MILLIS milliseconds into the search,
+         *  with principal variation PV. */
+        Iteration(int depth, int score, long nodes, long millis,
+                  List<Move> pv) {
+            _depth = depth;
+            _score = score;
+            _nodes = nodes;
+            _millis = millis;
+            _pv = pv;
+        }
+
+        /** Return my depth in plies. */
+        int depth() {
+            return _depth;
+        }
+
+        /** Return my value, positive favoring white. */
+        int score() {
+            return _score;
+        }
+
+        /** Return the number of nodes that the main thread visited in
+         *  me. */
+        long nodes() {
+            return _nodes;
+        }
+
+        /** Return the time from the start of the search to my end, in
+         *  milliseconds. */
+        long millis() {
+            return _millis;
+        }
+
+        /** Return my principal variation. */
+        List<Move> pv() {
+            return _pv;
+        }
+
+        /** My depth. */
+        private final int _depth;
+        /** My value. */
+        private final int _score;
+        /** Nodes visited by the main thread in me. */
+        private final long _nodes;
+        /** Time into the search at which I finished. */
+        private final long _millis;
+        /** My principal variation. */
+        private final List<Move> _pv;
+    }
+
+    /** The side to move at the root. */
+    private final Piece _side;
+    /** Number of moves made before the root position. */
+    private final int _movesMade;
+    /** Start and end times of the search. */
+    private long _start, _end;
+    /** The transposition table used. */
+    private final TranspositionTable _table;
+    /** The table's probe and hit counts when the search began. */
+    private final long _probes0, _hits0;
+    /** Table probes and hits during the search. */
+    private long _probes, _hits;
+    /** Permille of the table filled by the search. */
+    private int _fill;
+    /** Evaluation-cache probes and hits by the main thread. */
+    private long _evalProbes, _evalHits;
+    /** The move chosen, once the search is done. */
+    private Move _move;
+    /** Nodes visited by all threads, and by the main thread's
+     *  completed iterations. */
+    private long _nodes, _mainNodes;
+    /** Quiescence nodes visited by the main thread. */
+    private long _quiescenceNodes;
+    /** Number of threads that searched. */
+    private int _threads;
+    /** Beta cutoffs by the index of the cutoff move. */
+    private final long[] _cutoffs = new long[MoveOrderer.CUTOFF_SLOTS];
+    /** Completed iterations. */
+    private final List<Iteration> _iterations = new ArrayList<>();
+
+    /** Where JSON statistics are written, or null. */
+    private static volatile PrintStream _log;
+}
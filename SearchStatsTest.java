@@ -0,0 +1,70 @@
+package loa;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the SearchStats class. */
+public class SearchStatsTest {
+
+    /** Test the effective branching factor and per-iteration node counts
+     *  derived from the cumulative counts of successive iterations. */
+    @Test
+    public void testBranchingFactor() {
+        Board board = new Board();
+        SearchStats stats = new SearchStats(board, 0,
+                                            new TranspositionTable(1));
+        Move move = Move.mv("c1-c3");
+        stats.iteration(1, 0, 10, Arrays.asList(move));
+        assertEquals(0.0, stats.branchingFactor(), 1e-9);
+        stats.iteration(2, 0, 50, Arrays.asList(move));
+        stats.iteration(3, 0, 210, Arrays.asList(move));
+        assertEquals(3, stats.iterations().size());
+        assertEquals(160, stats.iterations().get(2).nodes());
+        assertEquals(4.0, stats.branchingFactor(1), 1e-9);
+        assertEquals(4.0, stats.branchingFactor(), 1e-9);
+    }
+
+    /** Test that an iteration with an empty principal variation is
+     *  recorded. */
+    @Test
+    public void testEmptyVariation() {
+        SearchStats stats = new SearchStats(new Board(), 0,
+                                            new TranspositionTable(1));
+        stats.iteration(1, 0, 10, Collections.emptyList());
+        assertEquals(1, stats.iterations().size());
+        assertTrue(stats.iterations().get(0).pv().isEmpty());
+    }
+
+    /** Test that a searched position's statistics are consistent and
+     *  appear in the JSON form. */
+    @Test
+    public void testSearch() {
+        Board board = new Board();
+        TranspositionTable table = new TranspositionTable(1);
+        Searcher searcher = new Searcher(table);
+        searcher.setPosition(board);
+        searcher.setDeadline(Long.MAX_VALUE);
+        SearchStats stats = new SearchStats(board, 0, table);
+        int value = searcher.searchRoot(3, -Searcher.INFTY, Searcher.INFTY,
+                                        0);
+        Move move = Move.mv(searcher.foundMove());
+        stats.iteration(3, -value, searcher.nodes(), Arrays.asList(move));
+        stats.finish(move, searcher.nodes(), 1, searcher);
+        assertEquals(searcher.nodes(), stats.nodes());
+        assertTrue(stats.hitRate() >= 0 && stats.hitRate() <= 1);
+        assertTrue(stats.probeRate() > 0);
+        assertTrue(stats.totalCutoffs() > 0);
+        assertEquals(searcher.evalCache().probes(), stats.evalProbes());
+        assertTrue(stats.evalHitRate() > 0 && stats.evalHitRate() < 1);
+        String json = stats.toJson();
+        assertTrue(json.startsWith("{\"side\":\"black\""));
+        assertTrue(json.contains("\"move\":\"" + move + "\""));
+        assertTrue(json.contains("\"evalProbes\":" + stats.evalProbes()));
+        assertTrue(json.contains("\"pv\":[\"" + move + "\"]"));
+        assertTrue(json.endsWith("}]}"));
+    }
+}
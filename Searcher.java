@@ -0,0 +1,650 @@
+package loa;
+
+import java.util.function.BooleanSupplier;
+
+import static loa.Piece.*;
+
+/** A game-tree searcher for MachinePlayer.  A Searcher owns a working
+ *  Board, on which it makes and unmakes moves in place, and move buffers
+ *  preallocated for each ply, so that a search allocates nothing once
+ *  it is under way.  Searchers may share a TranspositionTable, but each
+ *  Searcher must be used by only one thread at a time.
+ *
+ *  Scores are negamax scores: positive values favor the side to move.
+ *  A won position scores WINNING_VALUE less its distance in plies from
+ *  the root, so that quicker wins are preferred.
+ *
+ *  The search is a principal variation search: the first move at each
+ *  node is searched with the full window, and the rest with a zero
+ *  window, which suffices to show that they are no better; a move that
+ *  proves better is searched again with the full window.  Nodes searched
+ *  with a full window are PV nodes, whose best lines are recorded.
+ */
+final class Searcher {
+
+    /** A magnitude greater than any score. */
+    static final int INFTY = Integer.MAX_VALUE;
+    /** The score of a position won for the side to move at the root. */
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
+    /** The deepest ply (distance from the root) that a search reaches. */
+    static final int MAX_PLY = 128;
+    /** Scores at least this large in magnitude denote won or lost
+     *  positions. */
+    static final int WIN_THRESHOLD = WINNING_VALUE - MAX_PLY;
+
+    /** Number of nodes between checks of the clock (a power of 2). */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    /** Greatest number of plies that quiescence search extends below the
+     *  horizon. */
+    private static final int MAX_QUIESCENCE_PLY = 8;
+
+    /** Greatest number of quiescence nodes searched below any one node
+     *  at the horizon. */
+    private static final int QUIESCENCE_NODE_LIMIT = 2048;
+
+    /** Delta-pruning margin: a bound on the change in the static
+     *  evaluation that a single capture can cause, short of winning. */
+    private static final int DELTA_MARGIN = 400;
+
+    /** Selective-search techniques, which may be switched on and off by
+     *  setSelective: null-move pruning, late-move reductions, and
+     *  futility pruning. */
+    static final int NULL_MOVE = 1, LATE_MOVE_REDUCTION = 2, FUTILITY = 4;
+
+    /** Depth reduction of the search after a null move. */
+    private static final int NULL_MOVE_REDUCTION = 2;
+
+    /** Least remaining depth at which null moves and late-move reductions
+     *  are tried. */
+    private static final int SELECTIVE_DEPTH = 3;
+
+    /** Index in the search order from which quiet moves are reduced. */
+    private static final int LATE_MOVE_INDEX = 3;
+
+    /** Futility margins, indexed by remaining depth: quiet moves are
+     *  skipped at nodes whose static value falls this far short of alpha.
+     *  Only nodes with depth less than FUTILITY_MARGINS.length are
+     *  pruned. */
+    private static final int[] FUTILITY_MARGINS = { 0, 250, 450 };
+
+    /** An empty list of moves. */
+    private static final int[] NO_MOVES = {};
+
+    /** A Searcher that uses TABLE for its transposition table. */
+    Searcher(TranspositionTable table) {
+        _table = table;
+    }
+
+    /** Set my working board to a copy of BOARD. */
+    void setPosition(Board board) {
+        _board.copyFrom(board);
+    }
+
+    /** Return my working board. */
+    Board board() {
+        return _board;
+    }
+
+    /** Stop searching at time DEADLINE (as by System.currentTimeMillis),
+     *  and clear any earlier request to stop. */
+    void setDeadline(long deadline) {
+        _deadline = deadline;
+        _stopped = false;
+        _nodes = 0;
+        _qNodes = _standPatCutoffs = _deltaPrunes = _connections = 0;
+        _nullTries = _nullCutoffs = _reductions = _reSearches = 0;
+        _futilityPrunes = _pvReSearches = 0;
+        _evalCache.resetStatistics();
+    }
+
+    /** Switch TECHNIQUE (NULL_MOVE, LATE_MOVE_REDUCTION or FUTILITY) on
+     *  iff ON, for all Searchers. */
+    static void setSelective(int technique, boolean on) {
+        if (on) {
+            _selective |= technique;
+        } else {
+            _selective &= ~technique;
+        }
+    }
+
+    /** Return true iff TECHNIQUE is switched on. */
+    static boolean selective(int technique) {
+        return (_selective & technique) != 0;
+    }
+
+    /** Stop my current search as soon as possible.  May be called from
+     *  any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return true iff my search was stopped before completing, so that
+     *  its results are incomplete. */
+    boolean stopped() {
+        return _stopped;
+    }
+
+    /** Prepare for a new search from a new root position: reset the
+     *  move-ordering state that depends on the root. */
+    void newSearch() {
+        _orderer.newSearch();
+    }
+
+    /** Return my cache of static evaluations. */
+    EvalCache evalCache() {
+        return _evalCache;
+    }
+
+    /** Return my move orderer. */
+    MoveOrderer orderer() {
+        return _orderer;
+    }
+
+    /** Return the number of nodes visited since setDeadline. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of the nodes counted by nodes() that were
+     *  quiescence nodes. */
+    long quiescenceNodes() {
+        return _qNodes;
+    }
+
+    /** Return the number of quiescence nodes since setDeadline at which
+     *  the static evaluation alone produced a beta cutoff. */
+    long standPatCutoffs() {
+        return _standPatCutoffs;
+    }
+
+    /** Return the number of captures skipped by delta pruning since
+     *  setDeadline. */
+    long deltaPrunes() {
+        return _deltaPrunes;
+    }
+
+    /** Return the number of quiescence nodes since setDeadline found to
+     *  have a move that connects all the mover's pieces. */
+    long connections() {
+        return _connections;
+    }
+
+    /** Return the number of null-move searches since setDeadline. */
+    long nullTries() {
+        return _nullTries;
+    }
+
+    /** Return the number of null-move searches since setDeadline that
+     *  produced a cutoff. */
+    long nullCutoffs() {
+        return _nullCutoffs;
+    }
+
+    /** Return the number of moves searched to reduced depth since
+     *  setDeadline. */
+    long reductions() {
+        return _reductions;
+    }
+
+    /** Return the number of reduced moves since setDeadline that had to
+     *  be searched again to full depth. */
+    long reSearches() {
+        return _reSearches;
+    }
+
+    /** Return the number of moves skipped by futility pruning since
+     *  setDeadline. */
+    long futilityPrunes() {
+        return _futilityPrunes;
+    }
+
+    /** Return the number of moves since setDeadline whose zero-window
+     *  search failed high, so that they had to be searched again with
+     *  the full window. */
+    long pvReSearches() {
+        return _pvReSearches;
+    }
+
+    /** Search the root position to DEPTH plies with window ALPHA..BETA,
+     *  trying ROOTMOVE (a Move code, or 0) first.  Return its negamax
+     *  score, and set foundMove() to the best move found, or to 0 if the
+     *  game is over or the search was stopped before any move was
+     *  scored. */
+    int searchRoot(int depth, int alpha, int beta, int rootMove) {
+        return searchRoot(depth, alpha, beta, rootMove, NO_MOVES);
+    }
+
+    /** Search the root position as for searchRoot(DEPTH, ALPHA, BETA,
+     *  ROOTMOVE), but ignoring the root moves (Move codes) in EXCLUDED,
+     *  so as to find the best of the others.  Used for multi-PV
+     *  analysis.  The root is not recorded in the transposition table
+     *  when EXCLUDED is not empty, since its value is then not that of
+     *  the position. */
+    int searchRoot(int depth, int alpha, int beta, int rootMove,
+                   int[] excluded) {
+        _rootMove = rootMove;
+        _excluded = excluded;
+        _foundMove = 0;
+        return search(depth, 0, alpha, beta);
+    }
+
+    /** Search my working board by iterative deepening from FIRSTDEPTH to
+     *  MAXDEPTH plies, until stopped or a won or lost position is found.
+     *  Used by helper threads in a parallel search, which contribute
+     *  through the shared transposition table. */
+    void iterate(int firstDepth, int maxDepth) {
+        int rootMove = 0;
+        for (int depth = firstDepth; depth <= maxDepth; depth += 1) {
+            int value = searchRoot(depth, -INFTY, INFTY, rootMove);
+            if (_stopped || isWin(value)) {
+                break;
+            }
+            rootMove = _foundMove;
+        }
+    }
+
+    /** Search POSITION, which lies PLY plies below the root of a larger
+     *  search, to DEPTH plies with window ALPHA..BETA, and return its
+     *  negamax score.  Stop early at DEADLINE, or once CANCEL returns
+     *  true; CANCEL is polled as often as the clock.  Used by SplitSearch
+     *  to search subtrees sequentially. */
+    int searchSubtree(Board position, int ply, int depth, int alpha,
+                      int beta, long deadline, BooleanSupplier cancel) {
+        setPosition(position);
+        setDeadline(deadline);
+        _cancel = cancel;
+        try {
+            return search(depth, ply, alpha, beta);
+        } finally {
+            _cancel = null;
+        }
+    }
+
+    /** Return the principal variation found by the last searchRoot: the
+     *  Move codes of the expected line of play from the root, beginning
+     *  with foundMove().  Empty if no move raised alpha at the root. */
+    int[] principalVariation() {
+        return java.util.Arrays.copyOf(_pv[0], _pvLength[0]);
+    }
+
+    /** Return the best move (a Move code) found by the last searchRoot. */
+    int foundMove() {
+        return _foundMove;
+    }
+
+    /** Return true iff SCORE denotes a won or lost position. */
+    static boolean isWin(int score) {
+        return score >= WIN_THRESHOLD || score <= -WIN_THRESHOLD;
+    }
+
+    /** Return the negamax value of the working board, which is PLY plies
+     *  from the root, searched to DEPTH plies with window ALPHA..BETA.
+     *  At the root, records the best move in _foundMove. */
+    private int search(int depth, int ply, int alpha, int beta) {
+        _pvLength[ply] = ply;
+        if (outOfTime()) {
+            return 0;
+        }
+        Piece winner = _board.winner();
+        if (winner != null) {
+            return winner == EMP ? 0
+                : winner == _board.turn() ? WINNING_VALUE - ply
+                : -WINNING_VALUE + ply;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluate();
+        }
+        if (depth <= 0) {
+            _qBudget = QUIESCENCE_NODE_LIMIT;
+            return quiesce(ply, 0, alpha, beta);
+        }
+        boolean pv = (long) beta - alpha > 1;
+        long key = _board.key();
+        long entry = _table.probe(key);
+        int hashMove = ply == 0 ? _rootMove : 0;
+        if (entry != 0) {
+            if (hashMove == 0) {
+                hashMove = TranspositionTable.move(entry);
+            }
+            if (!pv && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    alpha = Math.max(alpha, score);
+                    break;
+                default:
+                    beta = Math.min(beta, score);
+                    break;
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+        boolean prunable = ply > 0 && !isWin(alpha) && !isWin(beta);
+        boolean tryNull = prunable && !pv && selective(NULL_MOVE)
+            && depth >= SELECTIVE_DEPTH && !_passed[ply - 1];
+        boolean futile = prunable && !pv && selective(FUTILITY)
+            && depth < FUTILITY_MARGINS.length;
+        int staticValue = tryNull || futile ? evaluate() : 0;
+        if (tryNull && staticValue >= beta) {
+            _nullTries += 1;
+            _board.pass();
+            _passed[ply] = true;
+            int value = -search(depth - 1 - NULL_MOVE_REDUCTION, ply + 1,
+                                -beta, -beta + 1);
+            _passed[ply] = false;
+            _board.pass();
+            if (_stopped) {
+                return 0;
+            }
+            if (value >= beta) {
+                _nullCutoffs += 1;
+                return beta;
+            }
+        }
+        futile = futile && staticValue + FUTILITY_MARGINS[depth] <= alpha;
+        int[] moves = _moves[ply];
+        int n = _board.legalMoves(moves);
+        if (n == 0) {
+            return evaluate();
+        }
+        _orderer.order(moves, _scores[ply], n, hashMove, ply);
+        long mine = _board.pieces(_board.turn());
+        int alpha0 = alpha, best = -INFTY, bestMove = 0;
+        boolean first = true;
+        for (int i = 0; i < n; i += 1) {
+            if (ply == 0 && excluded(moves[i])) {
+                continue;
+            }
+            boolean quiet = (moves[i] & Move.CAPTURE_FLAG) == 0
+                && moves[i] != hashMove && !connects(moves[i], mine);
+            if (futile && quiet && i > 0) {
+                _futilityPrunes += 1;
+                best = Math.max(best, staticValue + FUTILITY_MARGINS[depth]);
+                continue;
+            }
+            _board.makeMove(moves[i]);
+            int value;
+            if (first) {
+                first = false;
+                value = -search(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                int reduction = 0;
+                if (prunable && selective(LATE_MOVE_REDUCTION) && quiet
+                    && depth >= SELECTIVE_DEPTH && i >= LATE_MOVE_INDEX) {
+                    _reductions += 1;
+                    reduction = 1;
+                }
+                value = -search(depth - 1 - reduction, ply + 1,
+                                -alpha - 1, -alpha);
+                if (value > alpha && reduction > 0 && !_stopped) {
+                    _reSearches += 1;
+                    value = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+                }
+                if (value > alpha && value < beta && !_stopped) {
+                    _pvReSearches += 1;
+                    value = -search(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            _board.retract();
+            if (_stopped) {
+                break;
+            }
+            if (value > best) {
+                best = value;
+                bestMove = moves[i];
+                if (value > alpha) {
+                    alpha = value;
+                    if (pv) {
+                        updatePV(ply, moves[i]);
+                    }
+                    if (alpha >= beta) {
+                        _orderer.cutoff(moves[i], i, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+        if (ply == 0) {
+            _foundMove = bestMove;
+        }
+        if (!_stopped && (ply > 0 || _excluded.length == 0)) {
+            int bound = best <= alpha0 ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+            _table.store(key, depth, bound, toTable(best, ply), bestMove);
+        }
+        return best;
+    }
+
+    /** Return the value of the working board, which is PLY plies from
+     *  the root and QPLY plies below the horizon, with window
+     *  ALPHA..BETA, searching only moves that connect the mover's pieces
+     *  (and so win) and captures, which change group structure sharply.
+     *  The side to move may instead "stand pat" on the static value.
+     *  Captures that cannot raise the static value to ALPHA even by
+     *  DELTA_MARGIN are not searched.  The search is cut short at
+     *  MAX_QUIESCENCE_PLY plies, or once _qBudget nodes are used. */
+    private int quiesce(int ply, int qply, int alpha, int beta) {
+        _pvLength[ply] = ply;
+        if (outOfTime()) {
+            return 0;
+        }
+        _qNodes += 1;
+        _qBudget -= 1;
+        Piece winner = _board.winner();
+        if (winner != null) {
+            return winner == EMP ? 0
+                : winner == _board.turn() ? WINNING_VALUE - ply
+                : -WINNING_VALUE + ply;
+        }
+        int best = evaluate();
+        if (best >= beta) {
+            _standPatCutoffs += 1;
+            return best;
+        }
+        if (ply >= MAX_PLY - 1 || qply >= MAX_QUIESCENCE_PLY
+            || _qBudget <= 0) {
+            return best;
+        }
+        alpha = Math.max(alpha, best);
+        int[] moves = _moves[ply];
+        int n = _board.legalMoves(moves);
+        long mine = _board.pieces(_board.turn());
+        for (int i = 0; i < n; i += 1) {
+            if (connects(moves[i], mine)) {
+                _connections += 1;
+                return WINNING_VALUE - ply - 1;
+            }
+        }
+        boolean futile = best + DELTA_MARGIN <= alpha;
+        for (int i = 0; i < n; i += 1) {
+            if ((moves[i] & Move.CAPTURE_FLAG) == 0) {
+                continue;
+            }
+            if (futile) {
+                _deltaPrunes += 1;
+                continue;
+            }
+            _board.makeMove(moves[i]);
+            int value = -quiesce(ply + 1, qply + 1, -beta, -alpha);
+            _board.retract();
+            if (_stopped) {
+                break;
+            }
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Return true iff MOVE (a Move code) is excluded from the root of
+     *  the current search. */
+    private boolean excluded(int move) {
+        for (int m : _excluded) {
+            if (m == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Make MOVE, followed by the principal variation just found at PLY
+     *  + 1, the principal variation at PLY. */
+    private void updatePV(int ply, int move) {
+        int[] line = _pv[ply];
+        int length = _pvLength[ply + 1];
+        line[ply] = move;
+        System.arraycopy(_pv[ply + 1], ply + 1, line, ply + 1,
+                         length - ply - 1);
+        _pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    /** Return true iff MOVE (a Move code) leaves the pieces of the side
+     *  to move, whose bitboard is MINE, all connected, winning the
+     *  game.  Most moves are ruled out by the Euler number alone. */
+    private boolean connects(int move, long mine) {
+        if (!_board.mayConnect(move)) {
+            return false;
+        }
+        long toBit = 1L << Move.toIndex(move);
+        long after = mine & ~(1L << Move.fromIndex(move)) | toBit;
+        return Board.contiguous(toBit, after) == after;
+    }
+
+    /** Return the static value of the working board for the side to
+     *  move, from my evaluation cache if possible. */
+    private int evaluate() {
+        long key = _board.key();
+        int value = _evalCache.probe(key);
+        if (value == EvalCache.MISSING) {
+            value = MachinePlayer.heuristic(_board);
+            _evalCache.store(key, value);
+        }
+        return _board.turn() == WP ? value : -value;
+    }
+
+    /** Return SCORE, found at PLY plies from the root, converted to a
+     *  score relative to the node at which it was found, for storing in
+     *  the transposition table. */
+    static int toTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score + ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /** Return table score SCORE converted to a score relative to the
+     *  root, for a node PLY plies from the root. */
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score - ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /** Return true iff the search has run past its deadline or been
+     *  stopped or cancelled, checking the clock only every
+     *  TIME_CHECK_INTERVAL nodes. */
+    private boolean outOfTime() {
+        _nodes += 1;
+        if (!_stopped && (_nodes & (TIME_CHECK_INTERVAL - 1)) == 0
+            && (System.currentTimeMillis() >= _deadline
+                || _cancel != null && _cancel.getAsBoolean())) {
+            _stopped = true;
+        }
+        return _stopped;
+    }
+
+    /** The board on which I make and unmake moves. */
+    private final Board _board = new Board();
+
+    /** Move buffers for each ply. */
+    private final int[][] _moves = new int[MAX_PLY][Board.MAX_MOVES];
+
+    /** Move-ordering scores for each ply, parallel to _moves. */
+    private final int[][] _scores = new int[MAX_PLY][Board.MAX_MOVES];
+
+    /** Orders my moves and keeps my killer and history tables. */
+    private final MoveOrderer _orderer = new MoveOrderer();
+
+    /** The shared transposition table. */
+    private final TranspositionTable _table;
+
+    /** My cache of static evaluations. */
+    private final EvalCache _evalCache =
+        new EvalCache(EvalCache.DEFAULT_ENTRIES);
+
+    /** Move to try first at the root, or 0. */
+    private int _rootMove;
+
+    /** Root moves (Move codes) ignored by the current search. */
+    private int[] _excluded = NO_MOVES;
+
+    /** Best move found by the last searchRoot, or 0. */
+    private int _foundMove;
+
+    /** Time at which the current search must stop. */
+    private long _deadline;
+
+    /** True iff the current search has been stopped.  Volatile so that
+     *  other threads may stop me. */
+    private volatile boolean _stopped;
+
+    /** Number of nodes visited since setDeadline. */
+    private long _nodes;
+
+    /** Quiescence statistics since setDeadline: nodes, stand-pat
+     *  cutoffs, captures skipped by delta pruning, and nodes with
+     *  connecting moves. */
+    private long _qNodes, _standPatCutoffs, _deltaPrunes, _connections;
+
+    /** Number of quiescence nodes remaining to the current horizon
+     *  node. */
+    private int _qBudget;
+
+    /** Selective-search statistics since setDeadline: null-move searches
+     *  and their cutoffs, reduced moves and their re-searches, and moves
+     *  pruned as futile. */
+    private long _nullTries, _nullCutoffs, _reductions, _reSearches,
+        _futilityPrunes;
+
+    /** Number of principal-variation re-searches since setDeadline. */
+    private long _pvReSearches;
+
+    /** Triangular array of principal variations: _pv[p][p] through
+     *  _pv[p][_pvLength[p] - 1] are the Move codes of the best line found
+     *  from the node at ply p of the current line. */
+    private final int[][] _pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+
+    /** End indices of the principal variations in _pv. */
+    private final int[] _pvLength = new int[MAX_PLY + 1];
+
+    /** _passed[p] is true iff the move made at ply p of the current
+     *  line is a null move. */
+    private final boolean[] _passed = new boolean[MAX_PLY];
+
+    /** The selective-search techniques switched on, as a union of
+     *  NULL_MOVE, LATE_MOVE_REDUCTION and FUTILITY. */
+    private static volatile int _selective =
+        NULL_MOVE | LATE_MOVE_REDUCTION | FUTILITY;
+
+    /** Polled with the clock: the current search is abandoned once this
+     *  returns true.  Null if the search cannot be cancelled. */
+    private BooleanSupplier _cancel;
+}
@@ -0,0 +1,89 @@
+package loa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Searcher.*;
+
+/** Tests of the Searcher class. */
+public class SearcherTest {
+
+    /** A position in which white can connect by playing c4-c3, and black
+     *  has neither connecting moves nor captures. */
+    static final Piece[][] CONNECT = {
+        { WP,  EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, WP,  EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, WP,  EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, BP  },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, BP,  EMP, BP  },
+    };
+
+    /** Return a Searcher positioned at BOARD, ready to search. */
+    private static Searcher searcher(Board board) {
+        Searcher searcher = new Searcher(new TranspositionTable(1));
+        searcher.setPosition(board);
+        searcher.setDeadline(Long.MAX_VALUE);
+        return searcher;
+    }
+
+    /** Test that quiescence search at the horizon finds a connecting
+     *  move. */
+    @Test
+    public void testQuiescenceConnects() {
+        Searcher searcher = searcher(new Board(CONNECT, WP));
+        assertEquals(WINNING_VALUE - 1, searcher.searchRoot(0, -INFTY, INFTY,
+                                                            0));
+        assertEquals(1, searcher.connections());
+        assertEquals(WINNING_VALUE - 1, searcher.searchRoot(1, -INFTY, INFTY,
+                                                            0));
+        assertEquals(Move.mv("c4-c3"), Move.mv(searcher.foundMove()));
+    }
+
+    /** Test that a quiet horizon position takes its static value. */
+    @Test
+    public void testQuiescenceStandPat() {
+        Board board = new Board(CONNECT, BP);
+        Searcher searcher = searcher(board);
+        assertEquals(-MachinePlayer.heuristic(board),
+                     searcher.searchRoot(0, -INFTY, INFTY, 0));
+        assertEquals(1, searcher.quiescenceNodes());
+        assertEquals(0, searcher.connections());
+    }
+
+    /** Test that excluding the best root move yields another move that
+     *  is no better. */
+    @Test
+    public void testExcludedRootMoves() {
+        Board board = new Board();
+        Searcher searcher = searcher(board);
+        int best = searcher.searchRoot(2, -INFTY, INFTY, 0);
+        int move = searcher.foundMove();
+        searcher.setPosition(board);
+        int next = searcher.searchRoot(2, -INFTY, INFTY, 0,
+                                       new int[] { move });
+        assertNotEquals(0, searcher.foundMove());
+        assertNotEquals(move, searcher.foundMove());
+        assertTrue(next <= best);
+    }
+
+    /** Test that the principal variation starts with the move found and
+     *  is a line of legal moves. */
+    @Test
+    public void testPrincipalVariation() {
+        Board board = new Board();
+        Searcher searcher = searcher(board);
+        searcher.searchRoot(3, -INFTY, INFTY, 0);
+        int[] pv = searcher.principalVariation();
+        assertTrue(pv.length > 0);
+        assertEquals(searcher.foundMove(), pv[0]);
+        for (int move : pv) {
+            assertTrue(board.isLegal(Move.mv(move)));
+            board.makeMove(move);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package loa;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import static loa.Piece.*;
+import static loa.Searcher.*;
+
+/** A parallel alpha-beta search that splits work among the threads of a
+ *  ForkJoinPool using the "young brothers wait" rule (YBWC).  At the
+ *  root and at PV nodes (nodes on the leftmost path of the tree) the
+ *  eldest child is searched first, on its own, to establish alpha; the
+ *  remaining children are then searched in parallel as separate tasks.
+ *  If one of them causes a beta cutoff, its siblings are cancelled.  All
+ *  other nodes are searched sequentially by a Searcher belonging to the
+ *  worker thread.  The threads share a TranspositionTable.
+ *
+ *  Unlike the lazy SMP search, this divides the tree rather than
+ *  duplicating it, so that a search to a fixed depth finishes sooner
+ *  with more threads.
+ */
+final class SplitSearch {
+
+    /** Minimum remaining depth at which a PV node is split. */
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    /** A SplitSearch using THREADS threads and sharing TABLE. */
+    SplitSearch(int threads, TranspositionTable table) {
+        _pool = new ForkJoinPool(threads);
+        _table = table;
+        _searchers = ThreadLocal.withInitial(() -> new Searcher(table));
+    }
+
+    /** Return the number of threads I use. */
+    int threads() {
+        return _pool.getParallelism();
+    }
+
+    /** Stop searching at time DEADLINE (as by System.currentTimeMillis),
+     *  clear any earlier request to stop, and reset my node count. */
+    void setDeadline(long deadline) {
+        _deadline = deadline;
+        _stopped = false;
+        _nodes.reset();
+    }
+
+    /** Stop my current search, and any later one before the next
+     *  setDeadline, as soon as possible.  May be called from any
+     *  thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Search BOARD to DEPTH plies with window ALPHA..BETA, trying
+     *  ROOTMOVE (a Move code, or 0) first, and stopping at the deadline
+     *  set by setDeadline.  Return its negamax score, and set
+     *  foundMove() to the best move, or 0 if none was found. */
+    int searchRoot(Board board, int depth, int alpha, int beta,
+                   int rootMove) {
+        _foundMove = 0;
+        Node root = new Node(new Board(board), depth, 0, alpha, beta,
+                             true, null);
+        root._firstMove = rootMove;
+        int value = _pool.invoke(root);
+        _foundMove = root._bestMove;
+        return value;
+    }
+
+    /** Return the best move (a Move code) found by the last
+     *  searchRoot. */
+    int foundMove() {
+        return _foundMove;
+    }
+
+    /** Return true iff the last searchRoot ran out of time or was
+     *  stopped before completing. */
+    boolean stopped() {
+        return _stopped;
+    }
+
+    /** Return the number of nodes visited since setDeadline. */
+    long nodes() {
+        return _nodes.sum();
+    }
+
+    /** Stop my worker threads. */
+    void shutdown() {
+        _pool.shutdownNow();
+    }
+
+    /** The search of one node of the tree.  PV nodes deep enough to be
+     *  worth splitting are searched by YBWC; others are handed to the
+     *  worker thread's Searcher.  Nodes are never serialized. */
+    @SuppressWarnings("serial")
+    private final class Node extends RecursiveTask<Integer>
+        implements BooleanSupplier {
+
+        /** The search of POSITION, which is PLY plies from the root, to
+         *  DEPTH plies with window ALPHA..BETA, as a PV node iff PV.
+         *  PARENT is the node of which this is a child, or null at the
+         *  root. */
+        Node(Board position, int depth, int ply, int alpha, int beta,
+             boolean pv, Node parent) {
+            _position = position;
+            _depth = depth;
+            _ply = ply;
+            _alpha = alpha;
+            _beta = beta;
+            _pv = pv;
+            _parent = parent;
+        }
+
+        /** Return true iff this node or any of its ancestors has been
+         *  cancelled, or the search has run out of time. */
+        @Override
+        public boolean getAsBoolean() {
+            if (_stopped) {
+                return true;
+            }
+            for (Node n = this; n != null; n = n._parent) {
+                if (n._cancelled) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected Integer compute() {
+            if ((!_pv || _depth < MIN_SPLIT_DEPTH) && _ply > 0) {
+                Searcher searcher = _searchers.get();
+                int value = searcher.searchSubtree(_position, _ply, _depth,
+                                                   _alpha, _beta,
+                                                   _deadline, this);
+                _nodes.add(searcher.nodes());
+                if (searcher.stopped() && !getAsBoolean()) {
+                    _stopped = true;
+                }
+                return value;
+            }
+            return split();
+        }
+
+        /** Search my position by YBWC and return its value. */
+        private int split() {
+            _nodes.increment();
+            Piece winner = _position.winner();
+            if (winner != null) {
+                return winner == EMP ? 0
+                    : winner == _position.turn() ? WINNING_VALUE - _ply
+                    : -WINNING_VALUE + _ply;
+            }
+            int[] moves = new int[Board.MAX_MOVES];
+            int n = _position.legalMoves(moves);
+            if (n == 0 || _depth <= 0) {
+                return _searchers.get().searchSubtree(_position, _ply, 0,
+                                                      _alpha, _beta,
+                                                      _deadline, this);
+            }
+
+            long key = _position.key();
+            int first = _firstMove;
+            if (first == 0) {
+                first = TranspositionTable.move(_table.probe(key));
+            }
+            for (int i = 1; i < n; i += 1) {
+                if (moves[i] == first) {
+                    moves[i] = moves[0];
+                    moves[0] = first;
+                }
+            }
+
+            int alpha = _alpha;
+            int best = -child(moves[0], _alpha, true).compute();
+            _bestMove = moves[0];
+            if (getAsBoolean()) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+            if (alpha < _beta && n > 1) {
+                Node[] young = new Node[n - 1];
+                for (int i = 1; i < n; i += 1) {
+                    young[i - 1] = child(moves[i], alpha, false);
+                    young[i - 1].fork();
+                }
+                for (int i = 1; i < n; i += 1) {
+                    int value = -young[i - 1].join();
+                    if (getAsBoolean()) {
+                        break;
+                    }
+                    if (value > best) {
+                        best = value;
+                        _bestMove = moves[i];
+                        if (best >= _beta) {
+                            break;
+                        }
+                    }
+                }
+                _cancelled = true;
+                for (Node y : young) {
+                    y.quietlyJoin();
+                }
+            }
+            if (!_stopped && (_parent == null || !_parent.getAsBoolean())) {
+                int bound = best <= _alpha ? TranspositionTable.UPPER
+                    : best >= _beta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+                _table.store(key, _depth, bound, toTable(best, _ply),
+                             _bestMove);
+            }
+            return best;
+        }
+
+        /** Return the node for the child reached from my position by
+         *  MOVE, searched with window -BETA..-ALPHA, as a PV node iff
+         *  PV. */
+        private Node child(int move, int alpha, boolean pv) {
+            Board position = new Board(_position);
+            position.makeMove(move);
+            return new Node(position, _depth - 1, _ply + 1, -_beta, -alpha,
+                            pv, this);
+        }
+
+        /** The position searched. */
+        private final Board _position;
+        /** Remaining depth, distance from the root, and window. */
+        private final int _depth, _ply, _alpha, _beta;
+        /** True iff I am a PV node. */
+        private final boolean _pv;
+        /** My parent, or null at the root. */
+        private final Node _parent;
+        /** Move to search first, or 0 to use the transposition table. */
+        private int _firstMove;
+        /** Best move found. */
+        private int _bestMove;
+        /** True iff my remaining children are no longer needed (after a
+         *  cutoff, or once all have been searched). */
+        private volatile boolean _cancelled;
+    }
+
+    /** Threads that carry out the search. */
+    private final ForkJoinPool _pool;
+
+    /** The shared transposition table. */
+    private final TranspositionTable _table;
+
+    /** The Searcher of each worker thread. */
+    private final ThreadLocal<Searcher> _searchers;
+
+    /** Time at which the current search must stop. */
+    private long _deadline;
+
+    /** True iff the current search ran out of time or was stopped. */
+    private volatile boolean _stopped;
+
+    /** Best move found by the last searchRoot. */
+    private int _foundMove;
+
+    /** Number of nodes visited since setDeadline. */
+    private final LongAdder _nodes = new LongAdder();
+}
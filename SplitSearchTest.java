@@ -0,0 +1,93 @@
+package loa;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import static loa.Searcher.*;
+
+/** Tests of the SplitSearch class. */
+public class SplitSearchTest {
+
+    /** Number of random positions searched. */
+    private static final int POSITIONS = 10;
+
+    /** Depth of the deepest searches. */
+    private static final int MAX_SEARCH_DEPTH = 4;
+
+    /** All selective-search techniques. */
+    private static final int SELECTIVE =
+        NULL_MOVE | LATE_MOVE_REDUCTION | FUTILITY;
+
+    /** Return the position reached from the initial one by N random
+     *  moves chosen with RANDOM, stopping short of the end of the
+     *  game. */
+    private static Board randomPosition(Random random, int n) {
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < n; k += 1) {
+            board.makeMove(moves[random.nextInt(board.legalMoves(moves))]);
+            if (board.gameOver()) {
+                board.retract();
+                break;
+            }
+        }
+        return board;
+    }
+
+    /** Return the value for the side to move on BOARD of MOVE (a Move
+     *  code), according to a sequential search to DEPTH plies in all
+     *  with a fresh table. */
+    private static int moveValue(Board board, int move, int depth) {
+        Board next = new Board(board);
+        next.makeMove(Move.mv(move));
+        Searcher searcher = new Searcher(new TranspositionTable(1));
+        searcher.setPosition(next);
+        searcher.setDeadline(Long.MAX_VALUE);
+        return -searcher.searchRoot(depth - 1, -INFTY, INFTY, 0);
+    }
+
+    /** Test that with selective search off, a split search to a fixed
+     *  depth finds the same value as a sequential one.  The two may
+     *  choose different moves only among moves of equal value, as the
+     *  order in which the threads finish decides which of them is found
+     *  first. */
+    @Test
+    public void testAgreesWithSearcher() {
+        boolean[] selective = new boolean[SELECTIVE + 1];
+        for (int t = 1; t <= SELECTIVE; t <<= 1) {
+            selective[t] = Searcher.selective(t);
+            Searcher.setSelective(t, false);
+        }
+        SplitSearch splitter = new SplitSearch(4, new TranspositionTable(1));
+        try {
+            Random random = new Random(5);
+            for (int p = 0; p < POSITIONS; p += 1) {
+                Board board = randomPosition(random, 6 + p);
+                Searcher searcher = new Searcher(new TranspositionTable(1));
+                for (int depth = 1; depth <= MAX_SEARCH_DEPTH; depth += 1) {
+                    searcher.setPosition(board);
+                    searcher.setDeadline(Long.MAX_VALUE);
+                    int value = searcher.searchRoot(depth, -INFTY, INFTY, 0);
+                    splitter.setDeadline(Long.MAX_VALUE);
+                    assertEquals(value, splitter.searchRoot(board, depth,
+                                                            -INFTY, INFTY,
+                                                            0));
+                    assertFalse(splitter.stopped());
+                    int move = splitter.foundMove();
+                    assertTrue(board.isLegal(Move.mv(move)));
+                    if (move != searcher.foundMove()) {
+                        assertEquals(value, moveValue(board, move, depth));
+                    }
+                }
+            }
+        } finally {
+            splitter.shutdown();
+            for (int t = 1; t <= SELECTIVE; t <<= 1) {
+                Searcher.setSelective(t, selective[t]);
+            }
+        }
+    }
+}
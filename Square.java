@@ -26,6 +26,10 @@ final class Square {
     /** The total number of possible squares. */
     static final int NUM_SQUARES = BOARD_SIZE * BOARD_SIZE;
 
+    /** The total number of distinct lines of action: 8 columns, 8 rows,
+     *  and 15 diagonals in each of the two diagonal directions. */
+    static final int NUM_LINES = 2 * BOARD_SIZE + 2 * (2 * BOARD_SIZE - 1);
+
     /** The regular expression for a square designation (e.g.,
      *  a3). For convenience, it is in parentheses to make it a
      *  group.  This subpattern may be incorporated into
@@ -85,17 +89,10 @@ final class Square {
      *  DIR = 0 for north, 1 for north-east, 2 for east, etc., up to
      *  7 for north-west. If DIR has another value, return null. */
     Square moveDest(int dir, int steps) {
-        if (dir < 0 || dir > 7 || steps <= 0) {
-            return null;
-        }
-
-        int c = col() + DC[dir] * steps,
-            r = row() + DR[dir] * steps;
-        if (exists(c, r)) {
-            return sq(c, r);
-        } else {
+        if (dir < 0 || dir > 7 || steps <= 0 || steps >= BOARD_SIZE) {
             return null;
         }
+        return MOVE_DEST[index()][dir][steps];
     }
 
     /** Return the direction (an int as defined in the documentation
@@ -133,6 +130,39 @@ final class Square {
         return ADJACENT[index()];
     }
 
+    /** Return the single-bit mask denoting me in a bitboard, in which
+     *  Square S is represented by bit S.index(). */
+    long bit() {
+        return 1L << index();
+    }
+
+    /** Return the bitboard of all squares (including me) on the line
+     *  through me in direction DIR or its opposite, DIR + 4. */
+    long lineMask(int dir) {
+        return LINE_MASKS[index()][dir & 3];
+    }
+
+    /** Return a unique number between 0 and NUM_LINES-1, inclusive,
+     *  for the line through me in direction DIR or its opposite. */
+    int line(int dir) {
+        switch (dir & 3) {
+        case 0:
+            return _col;
+        case 1:
+            return BOARD_SIZE + _row - _col + BOARD_SIZE - 1;
+        case 2:
+            return 3 * BOARD_SIZE - 1 + _row;
+        default:
+            return 4 * BOARD_SIZE - 1 + _row + _col;
+        }
+    }
+
+    /** Return the bitboard of the squares strictly between me and TO,
+     *  which must be on one of my lines. */
+    long between(Square to) {
+        return BETWEEN[index()][to.index()];
+    }
+
     @Override
     public String toString() {
         return _str;
@@ -227,6 +257,48 @@ final class Square {
         }
     }
 
+    /** The results of moveDest, indexed by Square index, direction, and
+     *  number of steps. */
+    private static final Square[][][] MOVE_DEST =
+        new Square[ALL_SQUARES.length][8][BOARD_SIZE];
+
+    static {
+        for (Square sq : ALL_SQUARES) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                for (int steps = 1; steps < BOARD_SIZE; steps += 1) {
+                    int c = sq.col() + DC[dir] * steps,
+                        r = sq.row() + DR[dir] * steps;
+                    if (exists(c, r)) {
+                        MOVE_DEST[sq.index()][dir][steps] = sq(c, r);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Bitboards of the four lines through each square, indexed by
+     *  Square index and direction modulo 4. */
+    private static final long[][] LINE_MASKS = new long[ALL_SQUARES.length][4];
+
+    /** Bitboards of the squares strictly between two squares on a common
+     *  line, indexed by the two Square indices (0 for other pairs). */
+    private static final long[][] BETWEEN =
+        new long[ALL_SQUARES.length][ALL_SQUARES.length];
+
+    static {
+        for (Square sq : ALL_SQUARES) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                long path = 0;
+                for (Square to = sq.moveDest(dir, 1); to != null;
+                     to = to.moveDest(dir, 1)) {
+                    BETWEEN[sq.index()][to.index()] = path;
+                    path |= to.bit();
+                }
+                LINE_MASKS[sq.index()][dir & 3] |= path | sq.bit();
+            }
+        }
+    }
+
     /** My row and column. */
     private final int _row, _col;
 
@@ -0,0 +1,181 @@
+package loa;
+
+/** Divides a game clock among the moves of one MachinePlayer.  The
+ *  clock starts with a total time for the game and gains an increment
+ *  after each move.  For each move, the manager sets a soft target, a
+ *  share of the time remaining that allows for the moves still to come
+ *  before the move limit ends the game, and a hard limit, a few times the
+ *  target but never much of the time left, at which the search is
+ *  stopped outright.
+ *
+ *  Between iterations, the search asks whether to start another.  It
+ *  does so until about half the target has been used, since an
+ *  iteration that starts later is unlikely to finish.  That point moves
+ *  later when the search is unstable: when the best move changes between
+ *  iterations, or its value drops.  It moves much earlier when the move
+ *  is "easy": the best move has held for several iterations and a
+ *  search shows that every other move is worse by a wide margin.
+ */
+final class TimeManager {
+
+    /** The number of moves that a side is assumed to have left when the
+     *  move limit is further off than this. */
+    static final int MOVES_TO_GO = 25;
+    /** Time, in milliseconds, held back from each move to cover the
+     *  overhead of stopping the search and reporting the move. */
+    static final long SAFETY_MARGIN = 50;
+    /** Ratio of a move's hard limit to its soft target. */
+    static final int HARD_RATIO = 4;
+    /** A hard limit beyond the soft target takes no more than this
+     *  fraction of the time remaining. */
+    static final double HARD_SHARE = 0.3;
+    /** Fraction of the soft target after which a stable search starts
+     *  no new iteration. */
+    static final double ITERATION_FRACTION = 0.5;
+    /** Fraction of the soft target after which a search for an easy move
+     *  starts no new iteration. */
+    static final double EASY_FRACTION = 0.1;
+    /** A fall in value between iterations at least this large counts as
+     *  instability. */
+    static final int SCORE_DROP = 50;
+    /** Margin by which the best move must beat every other for the move
+     *  to be easy. */
+    static final int EASY_MARGIN = 150;
+    /** Number of iterations in a row that must agree on the best move
+     *  before it is tested for being easy. */
+    static final int EASY_ITERATIONS = 3;
+    /** Greatest factor by which instability stretches the time allowed
+     *  for starting iterations. */
+    private static final double MAX_STRETCH = 3.0;
+
+    /** A manager for a clock of TOTAL milliseconds, to which INCREMENT
+     *  milliseconds are added after each move. */
+    TimeManager(long total, long increment) {
+        if (total <= 0 || increment < 0) {
+            throw new IllegalArgumentException("bad clock settings");
+        }
+        _total = total;
+        _increment = increment;
+        _remaining = total;
+    }
+
+    /** Return the total time on my clock at the start of a game. */
+    long total() {
+        return _total;
+    }
+
+    /** Return the time added to my clock after each move. */
+    long increment() {
+        return _increment;
+    }
+
+    /** Return the time left on my clock, in milliseconds.  It is
+     *  negative if the clock has run out. */
+    long remaining() {
+        return _remaining;
+    }
+
+    /** Return the number of moves that the side to move on BOARD may
+     *  still make before the game is drawn by the move limit. */
+    static int movesLeft(Board board) {
+        return Math.max(1, (board.moveLimit() - board.movesMade() + 1) / 2);
+    }
+
+    /** Begin timing a move from BOARD at time NOW, setting the soft
+     *  target and hard limit for it. */
+    void startMove(Board board, long now) {
+        long available = Math.max(1, _remaining - SAFETY_MARGIN);
+        int movesToGo = Math.min(MOVES_TO_GO, movesLeft(board));
+        _start = now;
+        _soft = Math.min(available, available / movesToGo + _increment);
+        _hard = Math.max(_soft, Math.min(_soft * HARD_RATIO,
+                                         (long) (available * HARD_SHARE)));
+        _lastMove = null;
+        _lastScore = 0;
+        _stable = 0;
+        _instability = 0.0;
+        _easy = false;
+    }
+
+    /** Return the time by which the current move should be made. */
+    long softDeadline() {
+        return _start + _soft;
+    }
+
+    /** Return the time at which the search for the current move must
+     *  stop. */
+    long hardDeadline() {
+        return _start + _hard;
+    }
+
+    /** Record that an iteration of the search found BEST, with value
+     *  SCORE for the side to move. */
+    void iterationDone(Move best, int score) {
+        _instability /= 2;
+        if (_lastMove != null) {
+            if (best != _lastMove) {
+                _instability += 1.0;
+                _stable = 0;
+            } else {
+                _stable += 1;
+            }
+            if (score <= _lastScore - SCORE_DROP) {
+                _instability += 0.5;
+            }
+        }
+        _lastMove = best;
+        _lastScore = score;
+    }
+
+    /** Return true iff the best move has just held for EASY_ITERATIONS
+     *  iterations, and so should be tested for being easy.  Each run of
+     *  agreeing iterations calls for one test. */
+    boolean wantsEasyTest() {
+        return !_easy && _stable + 1 == EASY_ITERATIONS;
+    }
+
+    /** Record that the current best move has been found easy. */
+    void setEasy() {
+        _easy = true;
+    }
+
+    /** Return true iff the current best move has been found easy. */
+    boolean easy() {
+        return _easy;
+    }
+
+    /** Return true iff the search should start another iteration at
+     *  time NOW. */
+    boolean startIteration(long now) {
+        double fraction = _easy ? EASY_FRACTION
+            : ITERATION_FRACTION * Math.min(MAX_STRETCH, 1 + _instability);
+        return now - _start < fraction * _soft && now < hardDeadline();
+    }
+
+    /** Charge the time from the start of the current move to NOW to my
+     *  clock, and add the increment. */
+    void endMove(long now) {
+        _remaining += _increment - (now - _start);
+    }
+
+    /** Total time and increment of my clock. */
+    private final long _total, _increment;
+    /** Time left on my clock. */
+    private long _remaining;
+    /** Start of the current move. */
+    private long _start;
+    /** Soft target and hard limit of the current move, measured from
+     *  _start. */
+    private long _soft, _hard;
+    /** Best move and its value in the last iteration, or null. */
+    private Move _lastMove;
+    /** Value of _lastMove. */
+    private int _lastScore;
+    /** Number of iterations since the best move last changed. */
+    private int _stable;
+    /** Recent changes of the best move and drops in value, decaying by
+     *  half each iteration. */
+    private double _instability;
+    /** True iff the current best move has been found easy. */
+    private boolean _easy;
+}
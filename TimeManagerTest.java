@@ -0,0 +1,64 @@
+package loa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the TimeManager class. */
+public class TimeManagerTest {
+
+    /** Test that a move's share of the clock grows as the move limit
+     *  approaches, and that the hard limit stays within the clock. */
+    @Test
+    public void testAllocation() {
+        TimeManager timer = new TimeManager(10000, 0);
+        Board board = new Board();
+        timer.startMove(board, 0);
+        long early = timer.softDeadline();
+        assertTrue(early > 0 && timer.hardDeadline() >= early);
+        board.setMoveLimit(2);
+        timer.startMove(board, 0);
+        assertEquals(2, TimeManager.movesLeft(board));
+        assertTrue(timer.softDeadline() > early);
+        assertTrue(timer.hardDeadline() < 10000);
+        board.makeMove(board.legalMoves().get(0));
+        board.makeMove(board.legalMoves().get(0));
+        board.makeMove(board.legalMoves().get(0));
+        assertEquals(1, TimeManager.movesLeft(board));
+        timer.startMove(board, 0);
+        assertEquals(10000 - TimeManager.SAFETY_MARGIN,
+                     timer.softDeadline());
+    }
+
+    /** Test that the clock is charged for each move and credited with
+     *  the increment. */
+    @Test
+    public void testEndMove() {
+        TimeManager timer = new TimeManager(5000, 100);
+        timer.startMove(new Board(), 1000);
+        timer.endMove(1300);
+        assertEquals(4800, timer.remaining());
+    }
+
+    /** Test that changes of the best move extend the search, and that
+     *  an easy move cuts it short. */
+    @Test
+    public void testIterations() {
+        TimeManager timer = new TimeManager(100000, 0);
+        timer.startMove(new Board(), 0);
+        long soft = timer.softDeadline();
+        long stable = (long) (TimeManager.ITERATION_FRACTION * soft);
+        Move a = Move.mv("c1-c3"), b = Move.mv("d1-d3");
+        timer.iterationDone(a, 0);
+        assertTrue(timer.startIteration(stable - 1));
+        assertFalse(timer.startIteration(stable + 1));
+        timer.iterationDone(b, 0);
+        assertTrue(timer.startIteration(stable + 1));
+        timer.iterationDone(b, 0);
+        assertFalse(timer.wantsEasyTest());
+        timer.iterationDone(b, 0);
+        assertTrue(timer.wantsEasyTest());
+        timer.setEasy();
+        assertFalse(timer.startIteration(stable / 2));
+    }
+}
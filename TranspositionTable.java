@@ -0,0 +1,184 @@
+package loa;
+
+/** A fixed-size table of search results, indexed by position key (see
+ *  Board.key).  Each entry records the depth, bound type, score and best
+ *  move found for a position.
+ *
+ *  Entries are held in a preallocated long[], two longs per entry: the
+ *  packed data and the key XORed with the data.  Readers and writers
+ *  need no locks: an entry torn by a concurrent write fails the key check
+ *  on the next probe and is treated as a miss (Hyatt and Mann's
+ *  "lockless hashing").  The hit and probe counters are updated without
+ *  synchronization, so under concurrent use they are approximate.
+ */
+final class TranspositionTable {
+
+    /** Bound type of an entry whose score is exact. */
+    static final int EXACT = 1;
+    /** Bound type of an entry whose score is a lower bound. */
+    static final int LOWER = 2;
+    /** Bound type of an entry whose score is an upper bound. */
+    static final int UPPER = 3;
+
+    /** Number of bytes in one entry. */
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /** Layout of the packed data word: move code in the low
+     *  Move.CODE_BITS bits, then depth, bound type and search age, and
+     *  the score in the upper 32 bits. */
+    private static final int
+        DEPTH_SHIFT = Move.CODE_BITS,
+        BOUND_SHIFT = DEPTH_SHIFT + 8,
+        AGE_SHIFT = BOUND_SHIFT + 2,
+        SCORE_SHIFT = 32;
+
+    /** Number of entries sampled by fillPermille. */
+    private static final int FILL_SAMPLE = 1000;
+
+    /** A table occupying about MEGABYTES megabytes (rounded down to a
+     *  power of two entries). */
+    TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    /** Discard my contents and reallocate me to occupy about MEGABYTES
+     *  megabytes. */
+    void resize(int megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("table size must be positive");
+        }
+        long entries = Long.highestOneBit((long) megabytes * (1 << 20)
+                                          / ENTRY_BYTES);
+        _slots = new long[(int) Math.min(entries, 1 << 28) * 2];
+        _mask = _slots.length / 2 - 1;
+        _megabytes = megabytes;
+        clear();
+    }
+
+    /** Return my approximate size in megabytes. */
+    int megabytes() {
+        return _megabytes;
+    }
+
+    /** Remove all entries and reset my statistics. */
+    void clear() {
+        java.util.Arrays.fill(_slots, 0);
+        _age = 0;
+        _probes = _hits = _stores = 0;
+    }
+
+    /** Mark the start of a new search, so that entries from earlier
+     *  searches become preferred for replacement. */
+    void newSearch() {
+        _age = (_age + 1) & 0xff;
+    }
+
+    /** Return the packed data stored for KEY, or 0 if there is none.  Use
+     *  move, depth, bound and score to unpack it. */
+    long probe(long key) {
+        int i = 2 * (int) (key & _mask);
+        long data = _slots[i], check = _slots[i + 1];
+        _probes += 1;
+        if (data == 0 || (check ^ data) != key) {
+            return 0;
+        }
+        _hits += 1;
+        return data;
+    }
+
+    /** Record that the position with KEY has been searched to DEPTH, with
+     *  result SCORE of bound type BOUND (EXACT, LOWER or UPPER) and best
+     *  move MOVE (a Move code, or 0 if none).  An existing entry for a
+     *  different position is replaced only if it is shallower than DEPTH
+     *  or left over from an earlier search. */
+    void store(long key, int depth, int bound, int score, int move) {
+        int i = 2 * (int) (key & _mask);
+        long old = _slots[i], oldKey = _slots[i + 1] ^ old;
+        if (old != 0 && oldKey != key && depth(old) > depth
+            && age(old) == _age) {
+            return;
+        }
+        if (move == 0 && oldKey == key) {
+            move = move(old);
+        }
+        long data = (long) move
+            | (long) Math.min(depth, 0xff) << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT
+            | (long) _age << AGE_SHIFT
+            | (long) score << SCORE_SHIFT;
+        _slots[i] = data;
+        _slots[i + 1] = key ^ data;
+        _stores += 1;
+    }
+
+    /** Return the best-move code in packed DATA, or 0 if none. */
+    static int move(long data) {
+        return (int) data & ((1 << Move.CODE_BITS) - 1);
+    }
+
+    /** Return the search depth in packed DATA. */
+    static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xff;
+    }
+
+    /** Return the bound type (EXACT, LOWER or UPPER) in packed DATA. */
+    static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+
+    /** Return the score in packed DATA. */
+    static int score(long data) {
+        return (int) (data >>> SCORE_SHIFT);
+    }
+
+    /** Return the search age in packed DATA. */
+    private static int age(long data) {
+        return (int) (data >>> AGE_SHIFT) & 0xff;
+    }
+
+    /** Return the fraction of probes since the last clear that found an
+     *  entry. */
+    double hitRate() {
+        return _probes == 0 ? 0.0 : (double) _hits / _probes;
+    }
+
+    /** Return the number of probes since the last clear. */
+    long probes() {
+        return _probes;
+    }
+
+    /** Return the number of probes since the last clear that found an
+     *  entry. */
+    long hits() {
+        return _hits;
+    }
+
+    /** Return the number of entries stored since the last clear. */
+    long stores() {
+        return _stores;
+    }
+
+    /** Return the number of entries, per thousand, that are filled by the
+     *  current search, estimated from a sample of the table. */
+    int fillPermille() {
+        int n = (int) Math.min(FILL_SAMPLE, _mask + 1), full = 0;
+        for (int i = 0; i < n; i += 1) {
+            long data = _slots[2 * i];
+            if (data != 0 && age(data) == _age) {
+                full += 1;
+            }
+        }
+        return full * 1000 / n;
+    }
+
+    /** Entry slots: data at even indices, key XOR data following. */
+    private long[] _slots;
+    /** Mask selecting an entry index from a key. */
+    private long _mask;
+    /** My requested size in megabytes. */
+    private int _megabytes;
+    /** Age of the current search. */
+    private int _age;
+    /** Statistics: number of probes, hits and stores since clear. */
+    private long _probes, _hits, _stores;
+}
@@ -0,0 +1,42 @@
+package loa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the TranspositionTable class. */
+public class TranspositionTableTest {
+
+    /** Test that stored entries unpack to what was stored. */
+    @Test
+    public void testStoreProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.mv("c1-c3").code();
+        table.store(12345L, 7, TranspositionTable.LOWER, -321, move);
+        long entry = table.probe(12345L);
+        assertNotEquals(0, entry);
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(-321, TranspositionTable.score(entry));
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(0, table.probe(54321L));
+        assertEquals(0.5, table.hitRate(), 1e-9);
+    }
+
+    /** Test depth-preferred replacement within one search and aging
+     *  across searches. */
+    @Test
+    public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        long size = (1 << 20) / 16, key1 = 5, key2 = key1 + size;
+        table.store(key1, 6, TranspositionTable.EXACT, 10, 0);
+        table.store(key2, 2, TranspositionTable.EXACT, 20, 0);
+        assertNotEquals(0, table.probe(key1));
+        assertEquals(0, table.probe(key2));
+        table.newSearch();
+        table.store(key2, 2, TranspositionTable.EXACT, 20, 0);
+        assertEquals(20, TranspositionTable.score(table.probe(key2)));
+        assertEquals(0, table.probe(key1));
+    }
+
+}
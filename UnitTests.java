@@ -15,6 +15,15 @@ public class UnitTests {
     public static void main(String[] ignored) {
         textui.runClasses(UnitTests.class);
         textui.runClasses(BoardTest.class);
+        textui.runClasses(TranspositionTableTest.class);
+        textui.runClasses(EvalCacheTest.class);
+        textui.runClasses(SearcherTest.class);
+        textui.runClasses(SplitSearchTest.class);
+        textui.runClasses(SearchStatsTest.class);
+        textui.runClasses(TimeManagerTest.class);
+        textui.runClasses(MachinePlayerTest.class);
+        textui.runClasses(MCTSPlayerTest.class);
+        textui.runClasses(ProofSolverTest.class);
     }
 
     /** A dummy test to avoid complaint. */